@@ -136,6 +136,7 @@ function App() {
               setDocuments={setDocuments}
               refreshTrigger={refreshTrigger}
               onDocumentDeleted={handleDocumentUploaded}
+              onDocumentUploaded={handleDocumentUploaded}
             />
           </div>
         )}
@@ -149,6 +150,7 @@ function App() {
                 setDocuments={setDocuments}
                 refreshTrigger={refreshTrigger}
                 onDocumentDeleted={handleDocumentUploaded}
+              onDocumentUploaded={handleDocumentUploaded}
                 compact={true}
               />
             </div>
@@ -1,17 +1,24 @@
-import React, { useEffect, useState } from 'react';
-import { DocumentTextIcon, TrashIcon } from '@heroicons/react/24/outline';
-import { getDocuments, deleteDocument } from '../services/api';
+import React, { useEffect, useRef, useState } from 'react';
+import { ArrowUpTrayIcon, DocumentTextIcon, TrashIcon } from '@heroicons/react/24/outline';
+import { getDocuments, deleteDocument, uploadDocument } from '../services/api';
 
-const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDeleted, compact = false }) => {
+const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDeleted, onDocumentUploaded, compact = false }) => {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [total, setTotal] = useState(0);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [revisionTarget, setRevisionTarget] = useState(null);
+  const revisionInput = useRef(null);
 
   const fetchDocuments = async () => {
     setLoading(true);
     setError(null);
     try {
-      const data = await getDocuments();
-      setDocuments(data);
+      const page = await getDocuments();
+      setDocuments(page.documents);
+      setNextCursor(page.nextCursor);
+      setTotal(page.total);
     } catch (err) {
       setError('Failed to load documents');
       console.error(err);
@@ -20,6 +27,22 @@ const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDelet
     }
   };
 
+  // Fetch the next page only when asked, instead of the whole catalog up front
+  const loadMore = async () => {
+    setLoadingMore(true);
+    try {
+      const page = await getDocuments(nextCursor);
+      setDocuments((loaded) => [...loaded, ...page.documents]);
+      setNextCursor(page.nextCursor);
+      setTotal(page.total);
+    } catch (err) {
+      setError('Failed to load documents');
+      console.error(err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     fetchDocuments();
   }, [refreshTrigger]); // Refresh when trigger changes
@@ -36,6 +59,29 @@ const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDelet
     }
   };
 
+  const chooseRevision = (documentId) => {
+    setRevisionTarget(documentId);
+    revisionInput.current.click();
+  };
+
+  // Upload the chosen file as a new revision of the document it was picked for
+  const handleRevision = async (event) => {
+    const file = event.target.files[0];
+    event.target.value = '';
+    if (!file || !revisionTarget) return;
+    try {
+      await uploadDocument(file, revisionTarget);
+      if (onDocumentUploaded) {
+        onDocumentUploaded();
+      }
+    } catch (err) {
+      setError(err.response?.data?.message || 'Failed to upload revision');
+      console.error(err);
+    } finally {
+      setRevisionTarget(null);
+    }
+  };
+
   if (loading && documents.length === 0) {
     return (
       <div className="flex justify-center items-center h-24">
@@ -73,6 +119,14 @@ const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDelet
         </h2>
       )}
       
+      <input
+        ref={revisionInput}
+        type="file"
+        accept="application/pdf"
+        className="hidden"
+        onChange={handleRevision}
+      />
+
       <div className="divide-y divide-gray-200 dark:divide-secondary-700">
         {documents.map((doc) => (
           <div 
@@ -91,16 +145,40 @@ const DocumentList = ({ documents, setDocuments, refreshTrigger, onDocumentDelet
               </div>
             </div>
             
-            <button 
-              onClick={() => handleDelete(doc.id)}
-              className="text-secondary-400 hover:text-red-500 dark:text-secondary-500 dark:hover:text-red-400 transition-colors p-1 rounded-full hover:bg-red-50 dark:hover:bg-red-900/20"
-              title="Delete document"
-            >
-              <TrashIcon className="h-4 w-4" />
-            </button>
+            <div className="flex items-center">
+              <button
+                onClick={() => chooseRevision(doc.id)}
+                className="text-secondary-400 hover:text-primary-500 dark:text-secondary-500 dark:hover:text-primary-400 transition-colors p-1 rounded-full hover:bg-primary-50 dark:hover:bg-primary-900/20"
+                title="Upload new revision"
+              >
+                <ArrowUpTrayIcon className="h-4 w-4" />
+              </button>
+              <button
+                onClick={() => handleDelete(doc.id)}
+                className="text-secondary-400 hover:text-red-500 dark:text-secondary-500 dark:hover:text-red-400 transition-colors p-1 rounded-full hover:bg-red-50 dark:hover:bg-red-900/20"
+                title="Delete document"
+              >
+                <TrashIcon className="h-4 w-4" />
+              </button>
+            </div>
           </div>
         ))}
       </div>
+
+      {nextCursor && (
+        <div className="mt-4 flex items-center justify-between">
+          <p className="text-xs text-secondary-500 dark:text-secondary-400">
+            Showing {documents.length} of {total} documents
+          </p>
+          <button
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="text-sm font-medium text-primary-600 hover:text-primary-700 dark:text-primary-400 dark:hover:text-primary-300 disabled:opacity-50 transition-colors"
+          >
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </button>
+        </div>
+      )}
     </div>
   );
 };
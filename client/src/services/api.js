@@ -10,9 +10,13 @@ const api = axios.create({
 });
 
 // Document API
-export const uploadDocument = async (file) => {
+// Pass the id of a stored document to upload a new revision of it
+export const uploadDocument = async (file, documentId = null) => {
   const formData = new FormData();
   formData.append('file', file);
+  if (documentId) {
+    formData.append('documentId', documentId);
+  }
   
   const response = await axios.post(`${API_BASE_URL}/documents`, formData, {
     headers: {
@@ -23,8 +27,14 @@ export const uploadDocument = async (file) => {
   return response.data;
 };
 
-export const getDocuments = async () => {
-  const response = await api.get('/documents');
+// The server lists documents a page at a time; pass the nextCursor of a page to get the one after it
+export const getDocuments = async (cursor = null) => {
+  const response = await api.get('/documents', { params: { cursor } });
+  return response.data;
+};
+
+export const getIngestionStatus = async (documentId) => {
+  const response = await api.get(`/documents/${documentId}/status`);
   return response.data;
 };
 
@@ -34,8 +44,14 @@ export const deleteDocument = async (documentId) => {
 };
 
 // Chat API
+// The server keeps the conversation history of a session, follow-up questions refer to it
+let chatSessionId = null;
+
 export const sendChatMessage = async (query) => {
-  const response = await api.post('/chat', { query });
+  const response = await api.post('/chat', { query, sessionId: chatSessionId });
+  if (response.data.sessionId) {
+    chatSessionId = response.data.sessionId;
+  }
   return response.data;
 };
 
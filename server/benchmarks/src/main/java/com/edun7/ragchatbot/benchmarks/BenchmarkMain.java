@@ -0,0 +1,32 @@
+package com.edun7.ragchatbot.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs JMH with the options used to compare releases unless they are given: the GC profiler
+ * for allocation rates, and JSON results in {@code jmh-result.json}. Any other JMH option,
+ * e.g. a benchmark name pattern or {@code -p pages=20}, is passed through.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(List.of(args));
+        addDefault(options, "-prof", "gc");
+        addDefault(options, "-rf", "json");
+        addDefault(options, "-rff", "jmh-result.json");
+        Main.main(options.toArray(String[]::new));
+    }
+
+    private static void addDefault(List<String> options, String name, String value) {
+        if (!options.contains(name)) {
+            options.add(0, value);
+            options.add(0, name);
+        }
+    }
+}
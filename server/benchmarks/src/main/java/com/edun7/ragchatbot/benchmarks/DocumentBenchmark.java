@@ -0,0 +1,77 @@
+package com.edun7.ragchatbot.benchmarks;
+
+import com.edun7.ragchatbot.config.DocumentCatalogConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.IngestionConfig;
+import com.edun7.ragchatbot.service.document.PDFDocumentService;
+import com.edun7.ragchatbot.service.document.PdfPageExtractor;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF text extraction and paragraph splitting on generated documents of several sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentBenchmark {
+
+    @Param({"1", "20", "200"})
+    private int pages;
+
+    private Path directory;
+    private File pdf;
+    private PdfPageExtractor pageExtractor;
+    private PDFDocumentService documentService;
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("document-benchmark");
+        pdf = Fixtures.writePdf(directory.resolve(pages + "-pages.pdf"), pages).toFile();
+        pageExtractor = new PdfPageExtractor(new IngestionConfig(), new ExecutorFactory(false), Fixtures.metrics());
+        DocumentCatalogConfig catalogConfig = new DocumentCatalogConfig();
+        catalogConfig.setDataDir(directory.resolve("catalog").toString());
+        documentService = new PDFDocumentService(pageExtractor, catalogConfig);
+        content = documentService.extractContent(pdf);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        documentService.shutdown();
+        pageExtractor.shutdown();
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String extractContent() throws IOException {
+        return documentService.extractContent(pdf);
+    }
+
+    @Benchmark
+    public List<TextSegment> splitContent() {
+        return documentService.splitContent(content);
+    }
+}
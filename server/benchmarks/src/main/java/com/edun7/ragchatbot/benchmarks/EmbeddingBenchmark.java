@@ -0,0 +1,69 @@
+package com.edun7.ragchatbot.benchmarks;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.BgeSmallEnEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding the same segments with the bundled BGE small model one at a time and as one
+ * batch. Each operation embeds {@code batchSize} segments, so the scores are comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmbeddingBenchmark {
+
+    @Param({"1", "16", "64"})
+    private int batchSize;
+
+    // Words per segment, about the size of a 1024 character split
+    @Param({"180"})
+    private int segmentWords;
+
+    private EmbeddingModel model;
+    private List<TextSegment> segments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        model = new BgeSmallEnEmbeddingModel();
+        Random random = new Random(Fixtures.SEED);
+        segments = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            segments.add(TextSegment.from(Fixtures.text(random, segmentWords)));
+        }
+    }
+
+    @Benchmark
+    public void single(Blackhole blackhole) {
+        for (TextSegment segment : segments) {
+            blackhole.consume(model.embed(segment).content());
+        }
+    }
+
+    @Benchmark
+    public List<Embedding> batched() {
+        return model.embedAll(segments).content();
+    }
+}
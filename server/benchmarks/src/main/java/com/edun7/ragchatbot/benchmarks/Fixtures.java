@@ -0,0 +1,125 @@
+package com.edun7.ragchatbot.benchmarks;
+
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic inputs for the benchmarks, generated at setup so that no fixture files or
+ * network access are needed
+ */
+public final class Fixtures {
+
+    public static final long SEED = 42;
+
+    private static final String[] WORDS = {
+            "the", "model", "learning", "student", "course", "lecture", "energy", "system", "network",
+            "function", "value", "process", "data", "theory", "example", "equation", "result", "method",
+            "analysis", "structure", "of", "and", "in", "to", "is", "a", "with", "for", "by", "as"
+    };
+    private static final int LINES_PER_PAGE = 45;
+    private static final int WORDS_PER_LINE = 12;
+    private static final int LINES_PER_PARAGRAPH = 6;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Metrics that record into memory, like the server without a monitoring backend
+     */
+    public static RagMetrics metrics() {
+        return new RagMetrics(ObservationRegistry.NOOP, new SimpleMeterRegistry());
+    }
+
+    /**
+     * A sentence of {@code words} words from a fixed vocabulary
+     */
+    public static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sentence.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return sentence.append('.').toString();
+    }
+
+    /**
+     * Text of about {@code words} words in paragraphs of a few sentences
+     */
+    public static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int written = 0; written < words; written += WORDS_PER_LINE) {
+            text.append(sentence(random, WORDS_PER_LINE)).append(' ');
+            if ((written / WORDS_PER_LINE) % LINES_PER_PARAGRAPH == LINES_PER_PARAGRAPH - 1) {
+                text.append("\n\n");
+            }
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Write a PDF with {@code pages} pages of text, with an empty line between paragraphs
+     */
+    public static Path writePdf(Path file, int pages) throws IOException {
+        Random random = new Random(SEED);
+        try (PDDocument document = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 740);
+                    for (int line = 0; line < LINES_PER_PAGE; line++) {
+                        content.showText(line % (LINES_PER_PARAGRAPH + 1) == LINES_PER_PARAGRAPH
+                                ? "" : sentence(random, WORDS_PER_LINE));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    /**
+     * A random vector of unit length, like the normalized embeddings the index stores
+     */
+    public static float[] unitVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
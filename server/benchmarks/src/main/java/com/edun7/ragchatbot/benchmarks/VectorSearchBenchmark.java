@@ -0,0 +1,129 @@
+package com.edun7.ragchatbot.benchmarks;
+
+import com.edun7.ragchatbot.service.vectordb.HnswIndex;
+import com.edun7.ragchatbot.service.vectordb.MappedSegmentStore;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vector scoring and top-k selection over the memory-mapped store of the local vector
+ * database: an exhaustive scan with a bounded heap, as used while the graph is rebuilt, and
+ * an HNSW search with the default graph settings
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorSearchBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"10000", "100000"})
+    private int vectors;
+
+    // Dimension of the BGE small embeddings
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"5"})
+    private int k;
+
+    private Path directory;
+    private MappedSegmentStore store;
+    private HnswIndex index;
+    private float[][] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(Fixtures.SEED);
+        directory = Files.createTempDirectory("vector-benchmark");
+        store = new MappedSegmentStore(directory, dimension);
+        index = new HnswIndex(store, 16, 100, vectors);
+        TextSegment segment = TextSegment.from("segment");
+        for (int i = 0; i < vectors; i++) {
+            index.add(store.append(Fixtures.unitVector(random, dimension), segment));
+        }
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = Fixtures.unitVector(random, dimension);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Fixtures.deleteRecursively(directory);
+    }
+
+    private float[] nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERIES;
+        return queries[nextQuery];
+    }
+
+    /**
+     * Score every vector without selection, the cost of the similarity kernel alone
+     */
+    @Benchmark
+    public float scoreAll() {
+        float[] query = nextQuery();
+        float sum = 0;
+        for (int id = 0; id < vectors; id++) {
+            sum += store.dot(query, id);
+        }
+        return sum;
+    }
+
+    /**
+     * Score every vector and keep the best {@code k} in a bounded heap
+     */
+    @Benchmark
+    public List<Scored> exactTopK() {
+        float[] query = nextQuery();
+        PriorityQueue<Scored> best = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        for (int id = 0; id < vectors; id++) {
+            float score = store.dot(query, id);
+            if (best.size() < k) {
+                best.add(new Scored(id, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new Scored(id, score));
+            }
+        }
+        List<Scored> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(Scored::score).reversed());
+        return hits;
+    }
+
+    @Benchmark
+    public List<HnswIndex.Hit> hnswSearch() {
+        return index.search(nextQuery(), k, 64);
+    }
+
+    public record Scored(int id, float score) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.benchmarks.Fixtures;
+import com.edun7.ragchatbot.config.ContextConfig;
+import com.edun7.ragchatbot.config.GroqConfig;
+import com.edun7.ragchatbot.model.ChatMessage;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt assembly in {@link GroqLlmService}: fitting the retrieved chunks into the token budget
+ * and building the request body, without sending it. Lives in the service's package to reach
+ * the package-private request builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptAssemblyBenchmark {
+
+    @Param({"5", "50"})
+    private int chunks;
+
+    @Param({"0", "6"})
+    private int historyMessages;
+
+    private GroqLlmService llmService;
+    private ContextBuilder contextBuilder;
+    private List<String> relevantChunks;
+    private ConversationHistory history;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contextBuilder = new ContextBuilder(new ContextConfig());
+        llmService = new GroqLlmService("benchmark", "http://localhost", "unused", "llama-3.3-70b-versatile",
+                new GroqConfig(), contextBuilder, Fixtures.metrics());
+
+        Random random = new Random(Fixtures.SEED);
+        relevantChunks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            relevantChunks.add(Fixtures.text(random, 180));
+        }
+        List<ChatMessage> messages = new ArrayList<>(historyMessages);
+        for (int i = 0; i < historyMessages; i++) {
+            messages.add(ChatMessage.builder()
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content(Fixtures.text(random, i % 2 == 0 ? 15 : 80))
+                    .build());
+        }
+        history = new ConversationHistory(historyMessages > 0 ? Fixtures.text(random, 100) : null, messages);
+        query = Fixtures.text(random, 15);
+    }
+
+    @Benchmark
+    public PromptContext buildContext() {
+        return contextBuilder.build(relevantChunks, 512);
+    }
+
+    @Benchmark
+    public String buildRequestBody() {
+        return llmService.buildRequestBody(relevantChunks, query, history).toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scalar and SIMD kernels of the flat index: scoring every vector, and exact top-k search
+ * on one thread and split across all cores. Lives in the index's package to reach the
+ * package-private kernels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorKernelBenchmark {
+
+    private static final int QUERIES = 64;
+    private static final int BATCH = 256;
+
+    @Param({"scalar", "simd"})
+    private String kernel;
+
+    @Param({"10000", "100000"})
+    private int vectors;
+
+    // Dimension of the BGE small embeddings
+    @Param({"384"})
+    private int dimension;
+
+    @Param({"5"})
+    private int k;
+
+    private VectorKernel vectorKernel;
+    private float[] packed;
+    private float[] scores;
+    private FlatVectorIndex sequential;
+    private FlatVectorIndex parallel;
+    private ExecutorService executor;
+    private float[][] queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vectorKernel = "simd".equals(kernel) ? VectorKernel.create() : new ScalarVectorKernel();
+        if ("simd".equals(kernel) && vectorKernel instanceof ScalarVectorKernel) {
+            throw new IllegalStateException("The Java Vector API is not available in this JVM");
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads - 1) : null;
+        sequential = new FlatVectorIndex(dimension, vectorKernel, null, 1, 1);
+        parallel = new FlatVectorIndex(dimension, vectorKernel, executor, threads, 16384);
+
+        Random random = new Random(Fixtures.SEED);
+        packed = new float[vectors * dimension];
+        for (int i = 0; i < vectors; i++) {
+            float[] vector = Fixtures.unitVector(random, dimension);
+            System.arraycopy(vector, 0, packed, i * dimension, dimension);
+            sequential.add(vector);
+            parallel.add(vector);
+        }
+        scores = new float[BATCH];
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = Fixtures.unitVector(random, dimension);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private float[] nextQuery() {
+        nextQuery = (nextQuery + 1) % QUERIES;
+        return queries[nextQuery];
+    }
+
+    /**
+     * Score every vector of one contiguous array, the cost of the kernel alone
+     */
+    @Benchmark
+    public float scoreAll() {
+        float[] query = nextQuery();
+        float sum = 0;
+        for (int first = 0; first < vectors; first += BATCH) {
+            int count = Math.min(BATCH, vectors - first);
+            vectorKernel.dotAll(query, packed, first * dimension, count, scores);
+            sum += scores[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<HnswIndex.Hit> search() {
+        return sequential.search(nextQuery(), k, null);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Hit> parallelSearch() {
+        return parallel.search(nextQuery(), k, null);
+    }
+}
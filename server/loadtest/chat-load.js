@@ -0,0 +1,38 @@
+// k6 load test for the chat endpoint.
+//
+// Run once with VIRTUAL_THREADS_ENABLED=false and once with true, then compare
+// http_reqs (throughput) and http_req_duration percentiles:
+//
+//   k6 run -e BASE_URL=http://localhost:8080/api -e VUS=500 loadtest/chat-load.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const questions = [
+  'What is the main topic of the course?',
+  'Summarize the first chapter.',
+  'What are the key definitions introduced?',
+  'Explain the grading policy.',
+  'Which examples illustrate the main theorem?',
+];
+
+export const options = {
+  scenarios: {
+    chat: {
+      executor: 'constant-vus',
+      vus: Number(__ENV.VUS || 500),
+      duration: __ENV.DURATION || '2m',
+    },
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+  const query = questions[Math.floor(Math.random() * questions.length)];
+  const response = http.post(`${__ENV.BASE_URL || 'http://localhost:8080/api'}/chat`,
+      JSON.stringify({ query }),
+      { headers: { 'Content-Type': 'application/json' }, timeout: '120s' });
+  check(response, {
+    'status is 200': (r) => r.status === 200,
+    'answered successfully': (r) => r.json('success') === true,
+  });
+}
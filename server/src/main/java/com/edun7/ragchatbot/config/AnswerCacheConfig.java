@@ -0,0 +1,23 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.answer-cache")
+public class AnswerCacheConfig {
+    private boolean enabled = true;
+
+    /**
+     * Minimum cosine similarity between two query embeddings for them to share an answer
+     */
+    private double similarityThreshold = 0.95;
+
+    private Duration ttl = Duration.ofMinutes(10);
+
+    private int maxEntries = 1000;
+}
@@ -0,0 +1,57 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.chat")
+public class ChatConfig {
+    /**
+     * Workers relaying streamed responses to clients
+     */
+    private int streamThreads = 32;
+
+    /**
+     * Streamed chats that may wait for a worker before new ones are rejected
+     */
+    private int streamQueueCapacity = 64;
+
+    /**
+     * Maximum lifetime of a streamed chat connection
+     */
+    private Duration streamTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Maximum number of queries in one batch request
+     */
+    private int batchMaxQueries = 1000;
+
+    /**
+     * Queries of a batch embedded together and retrieved with one multi-search
+     */
+    private int batchRetrievalSize = 100;
+
+    /**
+     * LLM calls one batch keeps in flight
+     */
+    private int batchConcurrency = 8;
+
+    /**
+     * Workers answering batch queries, shared by all batches
+     */
+    private int batchThreads = 32;
+
+    /**
+     * Batches answered at the same time, each on a coordinator thread of its own; further batches are rejected
+     */
+    private int batchMaxConcurrent = 4;
+
+    /**
+     * Maximum lifetime of a batch response
+     */
+    private Duration batchTimeout = Duration.ofMinutes(60);
+}
@@ -0,0 +1,31 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.context")
+public class ContextConfig {
+    /**
+     * Upper bound on the tokens of the prompt sent to the LLM: instructions, context and query
+     */
+    private int maxPromptTokens = 4096;
+
+    /**
+     * The LLM's tokenizer.json; without it token counts are estimated from the text
+     */
+    private String tokenizerPath;
+
+    /**
+     * Share of a chunk's word shingles that must appear in an already included chunk for it
+     * to be dropped as a near-duplicate
+     */
+    private double duplicateThreshold = 0.9;
+
+    /**
+     * A chunk trimmed to fewer tokens than this is left out instead
+     */
+    private int minChunkTokens = 32;
+}
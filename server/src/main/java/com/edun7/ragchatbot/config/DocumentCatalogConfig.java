@@ -0,0 +1,35 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.catalog")
+public class DocumentCatalogConfig {
+    /**
+     * Directory of the catalog snapshot and change log
+     */
+    private String dataDir = "./catalog-data";
+
+    /**
+     * Changes appended to the log before it is folded into a new snapshot
+     */
+    private int snapshotInterval = 10000;
+
+    /**
+     * Force every change to disk before the upload or delete returns
+     */
+    private boolean syncWrites = true;
+
+    /**
+     * Documents per page when a listing does not ask for a size
+     */
+    private int defaultPageSize = 50;
+
+    /**
+     * Upper bound on the documents of one page
+     */
+    private int maxPageSize = 500;
+}
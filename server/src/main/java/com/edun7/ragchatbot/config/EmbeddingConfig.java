@@ -0,0 +1,60 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.embedding")
+public class EmbeddingConfig {
+    /**
+     * Number of segments embedded with a single embedAll call and written with a single bulk request
+     */
+    private int batchSize = 32;
+
+    /**
+     * Number of ingestion workers, 0 means one per available core
+     */
+    private int workerThreads = 0;
+
+    /**
+     * Whether query embeddings are cached in front of the embedding model
+     */
+    private boolean queryCacheEnabled = true;
+
+    /**
+     * Upper bound on the memory held by cached query embeddings
+     */
+    private long queryCacheMaxBytes = 16 * 1024 * 1024;
+
+    /**
+     * Largest number of texts the embedding service runs through the model in one inference
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * How long the embedding service waits for more texts before running a partial batch
+     */
+    private Duration maxWait = Duration.ofMillis(5);
+
+    /**
+     * Number of threads running model inference, 0 means half of the available cores
+     */
+    private int inferenceThreads = 0;
+
+    /**
+     * Number of segments that may wait for inference before callers block; queries are not counted
+     */
+    private int maxPendingItems = 4096;
+
+    public int resolveWorkerThreads() {
+        return workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int resolveInferenceThreads() {
+        return inferenceThreads > 0 ? inferenceThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+}
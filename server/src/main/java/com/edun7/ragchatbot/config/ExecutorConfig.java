@@ -0,0 +1,18 @@
+package com.edun7.ragchatbot.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class ExecutorConfig {
+
+    public static final String CHAT_STREAM_EXECUTOR = "chatStreamExecutor";
+
+    @Bean(name = CHAT_STREAM_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService chatStreamExecutor(ChatConfig config, ExecutorFactory executorFactory) {
+        return executorFactory.newBlockingExecutor("chat-stream-",
+                config.getStreamThreads(), config.getStreamQueueCapacity());
+    }
+}
@@ -0,0 +1,87 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the application's worker pools.
+ * <p>
+ * Pools for blocking I/O switch to virtual threads when {@code spring.threads.virtual.enabled}
+ * is set and the JVM supports them (Java 21+), the same switch that moves Tomcat request
+ * handling onto virtual threads. CPU-bound work such as embedding inference always runs on
+ * bounded platform-thread pools so it cannot monopolize the carrier threads. Virtual threads
+ * are looked up reflectively so the code still compiles and runs on Java 17.
+ */
+@Slf4j
+@Component
+public class ExecutorFactory {
+
+    private final boolean virtualThreads;
+
+    public ExecutorFactory(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsRequested) {
+        boolean supported = virtualThreadFactory("probe-") != null;
+        if (virtualThreadsRequested && !supported) {
+            log.warn("Virtual threads requested but not supported by Java {}, using platform threads",
+                    Runtime.version().feature());
+        }
+        this.virtualThreads = virtualThreadsRequested && supported;
+        log.info("Blocking work runs on {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Pool for tasks that mostly wait on I/O. With platform threads it has {@code threads} workers
+     * and rejects work once {@code queueCapacity} tasks are waiting; with virtual threads every
+     * admitted task gets its own thread, up to {@code threads + queueCapacity} at once.
+     */
+    public ExecutorService newBlockingExecutor(String namePrefix, int threads, int queueCapacity) {
+        if (virtualThreads) {
+            return new ThreadPoolExecutor(0, threads + queueCapacity, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), virtualThreadFactory(namePrefix));
+        }
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                platformThreadFactory(namePrefix));
+    }
+
+    /**
+     * Fixed pool of platform threads for CPU-bound work, regardless of the virtual thread setting
+     */
+    public ExecutorService newCpuExecutor(String namePrefix, int threads) {
+        return Executors.newFixedThreadPool(threads, platformThreadFactory(namePrefix));
+    }
+
+    public static ThreadFactory platformThreadFactory(String namePrefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            // Thread.ofVirtual().name(namePrefix, 1).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
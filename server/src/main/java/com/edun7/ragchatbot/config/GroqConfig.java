@@ -4,10 +4,23 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "app.groq")
 public class GroqConfig {
     private String apiKey;
     private String model;
+    private String baseUrl = "https://api.groq.com/openai/v1";
+
+    // HTTP client tuning
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration requestTimeout = Duration.ofSeconds(60);
+    private Duration callDeadline = Duration.ofSeconds(90);
+    private int maxRetries = 3;
+    private Duration initialBackoff = Duration.ofMillis(250);
+    private Duration maxBackoff = Duration.ofSeconds(5);
+    private int maxConcurrentRequests = 16;
+    private Duration acquireTimeout = Duration.ofSeconds(5);
 }
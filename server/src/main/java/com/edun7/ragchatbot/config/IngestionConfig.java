@@ -0,0 +1,77 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.ingestion")
+public class IngestionConfig {
+    /**
+     * Workers running the extract and split stages
+     */
+    private int extractThreads = 2;
+
+    /**
+     * Uploads that may wait for the extract stage before new uploads are rejected
+     */
+    private int extractQueueCapacity = 16;
+
+    /**
+     * Workers running the embed and index stages
+     */
+    private int indexThreads = 2;
+
+    /**
+     * Split documents that may wait for the index stage before the extract stage blocks
+     */
+    private int indexQueueCapacity = 4;
+
+    /**
+     * Maximum characters per segment
+     */
+    private int segmentSize = 1024;
+
+    /**
+     * Maximum characters of trailing sentences repeated at the start of the next segment
+     */
+    private int segmentOverlap = 0;
+
+    /**
+     * Segments handed from the extract stage to the index stage at a time, so embedding
+     * starts while the rest of the document is still being extracted
+     */
+    private int indexChunkSize = 128;
+
+    /**
+     * Chunks of one document that may wait for the index stage before extraction pauses
+     */
+    private int indexChunkQueueCapacity = 4;
+
+    /**
+     * Pages extracted by one PDF task; each task loads its own copy of the document
+     */
+    private int extractPagesPerTask = 16;
+
+    /**
+     * Page ranges of one document extracted in parallel, 0 means one per available core
+     */
+    private int extractParallelism = 0;
+
+    /**
+     * Heap buffer per loaded PDF before PDFBox spills to a scratch file
+     */
+    private long extractMainMemoryBytes = 8 * 1024 * 1024;
+
+    /**
+     * How long finished jobs remain visible through the status endpoint
+     */
+    private Duration jobRetention = Duration.ofHours(1);
+
+    public int resolveExtractParallelism() {
+        return extractParallelism > 0 ? extractParallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
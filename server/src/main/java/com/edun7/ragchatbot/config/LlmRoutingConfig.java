@@ -0,0 +1,67 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.llm")
+public class LlmRoutingConfig {
+    /**
+     * OpenAI-compatible endpoints to route between; when empty the app.groq endpoint is the only one
+     */
+    private List<Backend> backends = new ArrayList<>();
+
+    /**
+     * Send the same request to a second backend once the first is slower than its usual latency
+     */
+    private boolean hedgingEnabled = false;
+
+    /**
+     * Latency quantile of a backend after which a hedged request is sent
+     */
+    private double hedgeQuantile = 0.95;
+
+    /**
+     * Lower bound on the hedge delay, also used until a backend has enough latency samples
+     */
+    private Duration minHedgeDelay = Duration.ofMillis(500);
+
+    /**
+     * Weight of the newest sample in the latency and error moving averages
+     */
+    private double ewmaAlpha = 0.2;
+
+    /**
+     * Recent latencies kept per backend to estimate the hedge quantile
+     */
+    private int latencySamples = 256;
+
+    /**
+     * How long a backend is tried last after a failure
+     */
+    private Duration failureCooldown = Duration.ofSeconds(10);
+
+    /**
+     * Workers running backend calls, shared by all backends
+     */
+    private int threads = 64;
+
+    /**
+     * Backend calls that may wait for a worker before new ones are rejected
+     */
+    private int queueCapacity = 64;
+
+    @Data
+    public static class Backend {
+        private String name;
+        private String baseUrl;
+        private String apiKey;
+        private String model;
+    }
+}
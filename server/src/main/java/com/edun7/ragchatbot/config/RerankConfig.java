@@ -0,0 +1,54 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.rerank")
+public class RerankConfig {
+    /**
+     * Re-score retrieved segments with a cross-encoder before they are sent to the LLM
+     */
+    private boolean enabled = false;
+
+    /**
+     * ONNX export of the cross-encoder, e.g. ms-marco-MiniLM-L-6-v2
+     */
+    private String modelPath;
+
+    /**
+     * The model's tokenizer.json
+     */
+    private String tokenizerPath;
+
+    /**
+     * Segments retrieved from the vector database for re-ranking
+     */
+    private int candidates = 50;
+
+    /**
+     * Best-scoring segments passed on to the LLM
+     */
+    private int topN = 5;
+
+    /**
+     * Query/segment pairs scored in one inference
+     */
+    private int batchSize = 16;
+
+    /**
+     * Number of threads scoring batches in parallel, 0 means one per available core
+     */
+    private int threads = 0;
+
+    /**
+     * Tokens per query/segment pair, longer segments are truncated
+     */
+    private int maxLength = 512;
+
+    public int resolveThreads() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
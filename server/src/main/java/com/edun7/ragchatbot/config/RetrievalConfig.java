@@ -0,0 +1,40 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.retrieval")
+public class RetrievalConfig {
+    /**
+     * Run a lexical match query next to the vector query and fuse both result lists
+     */
+    private boolean hybridEnabled = false;
+
+    /**
+     * Weight of the vector results in reciprocal rank fusion
+     */
+    private double vectorWeight = 1.0;
+
+    /**
+     * Weight of the lexical results in reciprocal rank fusion
+     */
+    private double lexicalWeight = 1.0;
+
+    /**
+     * Rank constant k in 1 / (k + rank), larger values flatten the difference between ranks
+     */
+    private int rrfRankConstant = 60;
+
+    /**
+     * Results fetched from each leg before fusion
+     */
+    private int candidatesPerLeg = 20;
+
+    /**
+     * Nearest-neighbor candidates Elasticsearch considers per shard for the vector leg
+     */
+    private int knnNumCandidates = 100;
+}
@@ -0,0 +1,57 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.session")
+public class SessionConfig {
+    /**
+     * Sessions without a request for this long are dropped
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * Upper bound on stored sessions; beyond it the least recently used idle session is dropped
+     */
+    private int maxSessions = 10000;
+
+    /**
+     * Most recent messages kept verbatim, older ones are folded into the session summary
+     */
+    private int recentMessages = 6;
+
+    /**
+     * Upper bound on the tokens of the verbatim messages, older ones are summarized beyond it
+     */
+    private int maxHistoryTokens = 1024;
+
+    /**
+     * Length the summary of older turns is asked to stay within, in words
+     */
+    private int summaryMaxWords = 150;
+
+    /**
+     * Rewrite follow-up questions into standalone questions before retrieval
+     */
+    private boolean rewriteQueries = true;
+
+    /**
+     * How long a request waits for the previous turn of the same session to finish
+     */
+    private Duration turnTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Threads summarizing older turns in the background
+     */
+    private int summaryThreads = 2;
+
+    /**
+     * Summaries that may wait for a thread; beyond it older turns are dropped unsummarized
+     */
+    private int summaryQueueCapacity = 64;
+}
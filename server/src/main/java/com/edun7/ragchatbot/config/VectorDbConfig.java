@@ -0,0 +1,71 @@
+package com.edun7.ragchatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.vectordb")
+public class VectorDbConfig {
+    /**
+     * Vector database implementation: "elasticsearch", "local" for the in-process HNSW index or
+     * "flat" for in-process exact search
+     */
+    private String type = "elasticsearch";
+
+    /**
+     * Dimension of the stored embeddings, 384 for bge-small-en
+     */
+    private int dimension = 384;
+
+    /**
+     * Maximum neighbors per node on the upper graph layers; the bottom layer keeps twice as many
+     */
+    private int hnswM = 16;
+
+    /**
+     * Candidate list size while inserting, higher builds a better graph more slowly
+     */
+    private int hnswEfConstruction = 100;
+
+    /**
+     * Candidate list size while searching, higher improves recall at the cost of latency
+     */
+    private int hnswEfSearch = 64;
+
+    /**
+     * Number of vectors the local index allocates room for up front
+     */
+    private int initialCapacity = 1024;
+
+    /**
+     * Directory holding the memory-mapped segment and vector files of the local index
+     */
+    private String dataDir = "./vector-data";
+
+    /**
+     * Compression of the vectors searched by the index: none, int8 or binary
+     */
+    private VectorQuantization quantization = VectorQuantization.NONE;
+
+    /**
+     * With quantization, how many times more candidates than requested are re-scored
+     * against the full-precision vectors
+     */
+    private int rescoreOversample = 4;
+
+    /**
+     * Threads a flat index search is split across, 0 for one per core
+     */
+    private int flatThreads = 0;
+
+    /**
+     * Smallest number of vectors a flat index search hands to another thread
+     */
+    private int flatMinVectorsPerThread = 16384;
+
+    public int resolveFlatThreads() {
+        return flatThreads > 0 ? flatThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,48 @@
+package com.edun7.ragchatbot.config;
+
+/**
+ * How stored embeddings are compressed for approximate search. Full-precision vectors are
+ * always kept as well, so candidates can be re-scored exactly.
+ */
+public enum VectorQuantization {
+    /**
+     * 32-bit floats, 1536 bytes per 384-dim vector
+     */
+    NONE("hnsw", "8.0", Float.SIZE),
+    /**
+     * One signed byte per dimension plus a scale, about 4x smaller
+     */
+    INT8("int8_hnsw", "8.12", Byte.SIZE),
+    /**
+     * One sign bit per dimension, 32x smaller
+     */
+    BINARY("bbq_hnsw", "8.18", 1);
+
+    private final String elasticsearchIndexType;
+    private final String minimumElasticsearchVersion;
+    private final int bitsPerDimension;
+
+    VectorQuantization(String elasticsearchIndexType, String minimumElasticsearchVersion, int bitsPerDimension) {
+        this.elasticsearchIndexType = elasticsearchIndexType;
+        this.minimumElasticsearchVersion = minimumElasticsearchVersion;
+        this.bitsPerDimension = bitsPerDimension;
+    }
+
+    /**
+     * The dense_vector index_options type implementing this quantization
+     */
+    public String getElasticsearchIndexType() {
+        return elasticsearchIndexType;
+    }
+
+    /**
+     * Oldest Elasticsearch release that knows the index type
+     */
+    public String getMinimumElasticsearchVersion() {
+        return minimumElasticsearchVersion;
+    }
+
+    public int getBitsPerDimension() {
+        return bitsPerDimension;
+    }
+}
@@ -1,37 +1,73 @@
 package com.edun7.ragchatbot.controller;
 
+import com.edun7.ragchatbot.config.ChatConfig;
+import com.edun7.ragchatbot.config.ExecutorConfig;
+import com.edun7.ragchatbot.model.BatchChatRequest;
 import com.edun7.ragchatbot.model.ChatRequest;
 import com.edun7.ragchatbot.model.ChatResponse;
 import com.edun7.ragchatbot.service.RagService;
-import lombok.RequiredArgsConstructor;
+import com.edun7.ragchatbot.service.batch.BatchChatService;
+import com.edun7.ragchatbot.service.session.ChatSessionService;
+import com.edun7.ragchatbot.service.vectordb.MetadataFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
 @RequestMapping("/chat")
-@RequiredArgsConstructor
 public class ChatController {
     
     private final RagService ragService;
+    private final ChatSessionService sessionService;
+    private final BatchChatService batchChatService;
+    private final ChatConfig chatConfig;
+    private final ExecutorService streamExecutor;
+    private final ObjectMapper objectMapper;
+    
+    public ChatController(RagService ragService, ChatSessionService sessionService, BatchChatService batchChatService,
+                          ChatConfig chatConfig, @Qualifier(ExecutorConfig.CHAT_STREAM_EXECUTOR) ExecutorService streamExecutor,
+                          ObjectMapper objectMapper) {
+        this.ragService = ragService;
+        this.sessionService = sessionService;
+        this.batchChatService = batchChatService;
+        this.chatConfig = chatConfig;
+        this.streamExecutor = streamExecutor;
+        this.objectMapper = objectMapper;
+    }
     
     @PostMapping
     public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
-        log.info("Received chat request: {}", request.getQuery());
+        log.debug("Received chat request: {}", request.getQuery());
         
+        String sessionId = null;
         try {
-            String response = ragService.generateResponse(request.getQuery());
+            sessionId = sessionService.resolveId(request.getSessionId());
+            String response = ragService.generateResponse(request.getQuery(),
+                    MetadataFilter.from(request.getFilter()), sessionId);
             
             return ResponseEntity.ok(ChatResponse.builder()
                     .message(response)
                     .success(true)
                     .timestamp(Instant.now().toEpochMilli())
+                    .sessionId(sessionId)
                     .build());
                     
         } catch (Exception e) {
@@ -41,7 +77,152 @@ public class ChatController {
                     .message("An error occurred while processing your request: " + e.getMessage())
                     .success(false)
                     .timestamp(Instant.now().toEpochMilli())
+                    .sessionId(sessionId)
                     .build());
         }
     }
+    
+    /**
+     * Stream the answer as server-sent events: a "token" event per generated token,
+     * then a single "done" event carrying the full message, or an "error" event.
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatRequest request) {
+        log.debug("Received streaming chat request: {}", request.getQuery());
+        
+        SseEmitter emitter = new SseEmitter(chatConfig.getStreamTimeout().toMillis());
+        String sessionId;
+        try {
+            sessionId = sessionService.resolveId(request.getSessionId());
+        } catch (IllegalArgumentException e) {
+            sendError(emitter, e.getMessage(), null);
+            return emitter;
+        }
+        try {
+            streamExecutor.execute(() -> ragService.streamResponse(request.getQuery(),
+                    MetadataFilter.from(request.getFilter()), sessionId, new SseResponseHandler(emitter, sessionId)));
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected streaming chat request, all stream workers are busy");
+            sendError(emitter, "The server is busy, please retry shortly", sessionId);
+        }
+        return emitter;
+    }
+    
+    /**
+     * Answer independent questions, streaming one JSON result per line as each finishes.
+     * Results carry the index of their query, since they arrive in completion order.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter chatBatch(@RequestBody BatchChatRequest request) {
+        int queries = request.getQueries() != null ? request.getQueries().size() : 0;
+        log.info("Received batch chat request with {} queries", queries);
+        
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(chatConfig.getBatchTimeout().toMillis());
+        try {
+            batchChatService.submit(request.getQueries(), MetadataFilter.from(request.getFilter()),
+                    result -> sendLine(emitter, result)).whenComplete((ignored, error) -> {
+                if (error == null) {
+                    emitter.complete();
+                } else if (error instanceof IllegalArgumentException) {
+                    sendBatchError(emitter, error.getMessage());
+                } else if (error instanceof InterruptedException) {
+                    emitter.completeWithError(error);
+                } else {
+                    log.error("Error processing batch chat request", error);
+                    sendBatchError(emitter, "An error occurred while processing the batch: " + error.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected batch chat request, too many batches are running");
+            sendBatchError(emitter, "The server is busy, please retry shortly");
+        }
+        return emitter;
+    }
+    
+    /**
+     * Write one NDJSON line; false once the client is gone
+     */
+    private boolean sendLine(ResponseBodyEmitter emitter, Object value) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(value) + "\n", MediaType.APPLICATION_NDJSON);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+    
+    private void sendBatchError(ResponseBodyEmitter emitter, String message) {
+        sendLine(emitter, ChatResponse.builder()
+                .message(message)
+                .success(false)
+                .timestamp(Instant.now().toEpochMilli())
+                .build());
+        emitter.complete();
+    }
+    
+    private static void sendError(SseEmitter emitter, String message, String sessionId) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("error")
+                    .data(ChatResponse.builder()
+                            .message(message)
+                            .success(false)
+                            .timestamp(Instant.now().toEpochMilli())
+                            .sessionId(sessionId)
+                            .build(), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Client already went away
+            emitter.completeWithError(e);
+        }
+    }
+    
+    /**
+     * Relays streamed tokens to the client. A failed send aborts generation by
+     * throwing out of {@link #onNext}, which closes the upstream connection.
+     */
+    private static final class SseResponseHandler implements StreamingResponseHandler<String> {
+        
+        private final SseEmitter emitter;
+        private final String sessionId;
+        
+        private SseResponseHandler(SseEmitter emitter, String sessionId) {
+            this.emitter = emitter;
+            this.sessionId = sessionId;
+        }
+        
+        @Override
+        public void onNext(String token) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("token")
+                        .data(Map.of("token", token), MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Client disconnected", e);
+            }
+        }
+        
+        @Override
+        public void onComplete(Response<String> response) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name("done")
+                        .data(ChatResponse.builder()
+                                .message(response.content())
+                                .success(true)
+                                .timestamp(Instant.now().toEpochMilli())
+                                .sessionId(sessionId)
+                                .build(), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable error) {
+            log.error("Error streaming chat response", error);
+            sendError(emitter, "An error occurred while processing your request: " + error.getMessage(), sessionId);
+        }
+    }
 }
@@ -1,10 +1,18 @@
 package com.edun7.ragchatbot.controller;
 
+import com.edun7.ragchatbot.config.DocumentCatalogConfig;
 import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentPage;
+import com.edun7.ragchatbot.model.DocumentUpload;
+import com.edun7.ragchatbot.model.IngestionStatus;
 import com.edun7.ragchatbot.service.RagService;
 import com.edun7.ragchatbot.service.document.DocumentService;
+import com.edun7.ragchatbot.service.ingestion.IngestionJob;
+import com.edun7.ragchatbot.service.ingestion.IngestionRejectedException;
+import com.edun7.ragchatbot.service.ingestion.IngestionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,7 +20,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Slf4j
@@ -22,10 +29,16 @@ import java.util.Map;
 public class DocumentController {
     
     private final DocumentService documentService;
+    private final IngestionService ingestionService;
     private final RagService ragService;
+    private final DocumentCatalogConfig catalogConfig;
     
+    /**
+     * Upload a new document, or a new revision of the document given by {@code documentId}
+     */
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> uploadDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> uploadDocument(@RequestParam("file") MultipartFile file,
+                                                              @RequestParam(required = false) String documentId) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -48,18 +61,49 @@ public class DocumentController {
             }
             
             // Process and store the document
-            DocumentInfo documentInfo = documentService.processDocument(file);
+            DocumentUpload upload;
+            try {
+                upload = documentService.processDocument(file, documentId);
+            } catch (IllegalArgumentException e) {
+                log.warn("Rejected revision upload: {}", e.getMessage());
+                response.put("success", false);
+                response.put("message", e.getMessage());
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            DocumentInfo documentInfo = upload.getDocument();
             log.info("Document processed with ID: {}", documentInfo.getId());
             
-            // Index the document for RAG
-            ragService.processAndIndexDocument(documentInfo.getId());
-            log.info("Document indexed successfully");
+            // Identical content is already indexed
+            if (upload.isDuplicate()) {
+                response.put("success", true);
+                response.put("message", "Document already uploaded");
+                response.put("document", documentInfo);
+                ingestionService.getJob(documentInfo.getId()).ifPresent(job -> response.put("status", job.toStatus()));
+                return ResponseEntity.ok(response);
+            }
+            
+            // Queue the document for indexing and return right away
+            IngestionJob job;
+            try {
+                job = ingestionService.submit(upload);
+            } catch (IngestionRejectedException e) {
+                log.warn("Rejected document {}: {}", documentInfo.getId(), e.getMessage());
+                // A rejected revision leaves the stored document untouched
+                documentService.discardUpload(upload);
+                response.put("success", false);
+                response.put("message", e.getMessage());
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+            }
             
             response.put("success", true);
-            response.put("message", "Document uploaded and indexed successfully");
+            response.put("message", upload.isRevision()
+                    ? "New revision uploaded, re-indexing changed content"
+                    : "Document uploaded, indexing in progress");
             response.put("document", documentInfo);
+            response.put("jobId", job.getJobId());
+            response.put("status", job.toStatus());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
             
         } catch (IOException e) {
             log.error("Error uploading document", e);
@@ -74,16 +118,37 @@ public class DocumentController {
         }
     }
     
+    /**
+     * List stored documents in upload order, one page at a time. Pass the {@code nextCursor}
+     * of a page to get the next one.
+     */
     @GetMapping
-    public ResponseEntity<List<DocumentInfo>> getAllDocuments() {
-        return ResponseEntity.ok(documentService.getAllDocuments());
+    public ResponseEntity<DocumentPage> getAllDocuments(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null ? catalogConfig.getDefaultPageSize() : limit;
+        if (pageSize < 1 || pageSize > catalogConfig.getMaxPageSize()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(documentService.getDocuments(cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected document listing: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{documentId}/status")
+    public ResponseEntity<IngestionStatus> getIngestionStatus(@PathVariable String documentId) {
+        return ingestionService.getJob(documentId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
     
     @DeleteMapping("/{documentId}")
     public ResponseEntity<Map<String, Object>> deleteDocument(@PathVariable String documentId) {
         Map<String, Object> response = new HashMap<>();
         
-        boolean deleted = documentService.deleteDocument(documentId);
+        boolean deleted = ragService.deleteDocument(documentId);
         
         if (deleted) {
             response.put("success", true);
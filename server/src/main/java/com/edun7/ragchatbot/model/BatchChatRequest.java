@@ -0,0 +1,24 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchChatRequest {
+    /**
+     * Independent questions, answered without conversation history
+     */
+    private List<String> queries;
+    /**
+     * Optional restriction of the searched segments for every query, see {@link ChatRequest#getFilter()}
+     */
+    private Map<String, List<String>> filter;
+}
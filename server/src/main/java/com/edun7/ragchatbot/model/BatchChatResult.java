@@ -0,0 +1,21 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchChatResult {
+    /**
+     * Position of the query in the request; results arrive in completion order
+     */
+    private int index;
+    private String query;
+    private String message;
+    private boolean success;
+    private long timestamp;
+}
@@ -5,10 +5,22 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+import java.util.Map;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class ChatRequest {
     private String query;
+    /**
+     * Conversation this query continues; a new one is started when absent
+     */
+    private String sessionId;
+    /**
+     * Optional restriction of the searched segments: allowed values per metadata key,
+     * e.g. {"document_id": ["..."]}
+     */
+    private Map<String, List<String>> filter;
 }
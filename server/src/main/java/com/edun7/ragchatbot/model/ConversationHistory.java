@@ -0,0 +1,29 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Earlier turns of a conversation as passed to the LLM: a summary of the oldest turns and
+ * the most recent messages verbatim
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationHistory {
+    private String summary;
+    private List<ChatMessage> messages;
+
+    public static ConversationHistory empty() {
+        return new ConversationHistory(null, List.of());
+    }
+
+    public boolean isEmpty() {
+        return (summary == null || summary.isBlank()) && (messages == null || messages.isEmpty());
+    }
+}
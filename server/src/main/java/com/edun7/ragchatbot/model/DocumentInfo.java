@@ -6,7 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class DocumentInfo {
@@ -15,4 +15,6 @@ public class DocumentInfo {
     private String type;
     private long size;
     private String uploadDate;
+    private String contentHash;
+    private int revision;
 }
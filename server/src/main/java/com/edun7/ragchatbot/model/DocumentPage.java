@@ -0,0 +1,27 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the stored documents in upload order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPage {
+    private List<DocumentInfo> documents;
+    /**
+     * Cursor of the next page, null on the last page
+     */
+    private String nextCursor;
+    /**
+     * Number of stored documents
+     */
+    private int total;
+}
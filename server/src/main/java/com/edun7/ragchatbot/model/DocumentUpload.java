@@ -0,0 +1,32 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of storing an uploaded file
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentUpload {
+    private DocumentInfo document;
+    /**
+     * A document with identical content was already stored, nothing was saved
+     */
+    private boolean duplicate;
+    /**
+     * The upload is a new revision of an existing document, keeping its id
+     */
+    private boolean revision;
+    /**
+     * Where a new revision waits until {@link com.edun7.ragchatbot.service.document.DocumentService#storeRevision}
+     * replaces the stored file with it
+     */
+    private Path stagedFile;
+}
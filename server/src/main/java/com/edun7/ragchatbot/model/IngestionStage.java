@@ -0,0 +1,15 @@
+package com.edun7.ragchatbot.model;
+
+public enum IngestionStage {
+    QUEUED,
+    EXTRACTING,
+    SPLITTING,
+    EMBEDDING,
+    INDEXING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,29 @@
+package com.edun7.ragchatbot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionStatus {
+    private String jobId;
+    private String documentId;
+    private String documentName;
+    private IngestionStage stage;
+    private int extractedCharacters;
+    private int totalSegments;
+    private int reusedSegments;
+    private int removedSegments;
+    private int embeddedSegments;
+    private int indexedSegments;
+    private Map<IngestionStage, Long> stageDurationsMillis;
+    private String error;
+    private String submittedAt;
+    private String updatedAt;
+}
@@ -1,18 +1,30 @@
 package com.edun7.ragchatbot.service;
 
+import com.edun7.ragchatbot.config.RerankConfig;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import com.edun7.ragchatbot.service.cache.SemanticAnswerCache;
 import com.edun7.ragchatbot.service.document.DocumentService;
-import com.edun7.ragchatbot.service.document.PDFDocumentService;
 import com.edun7.ragchatbot.service.llm.LlmService;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import com.edun7.ragchatbot.service.rerank.Reranker;
+import com.edun7.ragchatbot.service.session.ChatSession;
+import com.edun7.ragchatbot.service.session.ChatSessionService;
+import com.edun7.ragchatbot.service.vectordb.MetadataFilter;
 import com.edun7.ragchatbot.service.vectordb.VectorDbService;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,42 +32,148 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RagService {
     
+    private static final int DEFAULT_MAX_RESULTS = 5;
+    
+    private static final String NO_CONTEXT_RESPONSE = "I don't have enough information to answer that question. Please upload relevant documents to help me provide a better answer.";
+    
     private final DocumentService documentService;
     private final VectorDbService vectorDbService;
     private final LlmService llmService;
+    private final SemanticAnswerCache answerCache;
+    private final RerankConfig rerankConfig;
+    private final Optional<Reranker> reranker;
+    private final ChatSessionService sessionService;
+    private final RagMetrics metrics;
     
     /**
-     * Process a document, extract text, and add segments to the vector database
+     * Delete a document with its indexed segments and drop answers that may have been derived from it
      */
-    public void processAndIndexDocument(String documentId) throws IOException {
-        // Get document file
-        File documentFile = ((PDFDocumentService) documentService).getDocumentById(documentId);
-        if (documentFile == null || !documentFile.exists()) {
-            throw new IOException("Document not found: " + documentId);
+    public boolean deleteDocument(String documentId) {
+        if (documentService.getDocumentById(documentId) == null) {
+            return false;
         }
-        
-        // Extract content
-        String content = documentService.extractContent(documentFile);
-        log.info("Extracted {} characters from document {}", content.length(), documentId);
-        
-        // Split content into segments
-        List<TextSegment> segments = documentService.splitContent(content, 1024, 0);
-        log.info("Split document into {} segments", segments.size());
-        
-        // Add segments to vector database
-        vectorDbService.addSegments(segments);
-        log.info("Added segments to vector database");
+        // Remove the segments first, so a failure leaves the document listed for another attempt
+        try {
+            vectorDbService.deleteDocument(documentId);
+        } catch (Exception e) {
+            log.error("Failed to delete the segments of document {}", documentId, e);
+            return false;
+        } finally {
+            answerCache.invalidateAll();
+        }
+        return documentService.deleteDocument(documentId);
+    }
+    
+    /**
+     * Search the segments for a query. With a re-ranker, over-fetch candidates and keep the best ones.
+     */
+    private List<EmbeddingMatch<TextSegment>> retrieve(String query, Embedding queryEmbedding, MetadataFilter filter) {
+        if (reranker.isEmpty()) {
+            return metrics.observe(RagMetrics.SEARCH,
+                    () -> vectorDbService.search(query, queryEmbedding, DEFAULT_MAX_RESULTS, filter));
+        }
+        List<EmbeddingMatch<TextSegment>> candidates = metrics.observe(RagMetrics.SEARCH, () -> vectorDbService.search(
+                query, queryEmbedding, Math.max(rerankConfig.getCandidates(), rerankConfig.getTopN()), filter));
+        return metrics.observe(RagMetrics.RERANK,
+                () -> reranker.get().rerank(query, candidates, rerankConfig.getTopN()));
+    }
+    
+    /**
+     * Embed several queries at once, see {@link #retrieveAll}
+     */
+    public List<Embedding> embedQueries(List<String> queries) {
+        return metrics.observe(RagMetrics.QUERY_EMBED, () -> vectorDbService.embedQueries(queries));
+    }
+    
+    /**
+     * Search the segments for several queries at once, returning the retrieved segments of each
+     * query in input order
+     */
+    public List<List<EmbeddingMatch<TextSegment>>> retrieveAll(List<String> queries, List<Embedding> queryEmbeddings,
+                                                               MetadataFilter filter) {
+        if (reranker.isEmpty()) {
+            return metrics.observe(RagMetrics.SEARCH,
+                    () -> vectorDbService.searchAll(queries, queryEmbeddings, DEFAULT_MAX_RESULTS, filter));
+        }
+        List<List<EmbeddingMatch<TextSegment>>> candidates = metrics.observe(RagMetrics.SEARCH, () -> vectorDbService.searchAll(
+                queries, queryEmbeddings, Math.max(rerankConfig.getCandidates(), rerankConfig.getTopN()), filter));
+        List<List<EmbeddingMatch<TextSegment>>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            String query = queries.get(i);
+            List<EmbeddingMatch<TextSegment>> queryCandidates = candidates.get(i);
+            results.add(metrics.observe(RagMetrics.RERANK,
+                    () -> reranker.get().rerank(query, queryCandidates, rerankConfig.getTopN())));
+        }
+        return results;
     }
     
     /**
      * Generate a response to a user query using the RAG process
      */
     public String generateResponse(String query) {
+        return generateResponse(query, MetadataFilter.NONE);
+    }
+    
+    /**
+     * Generate a response using only segments that match the filter
+     */
+    public String generateResponse(String query, MetadataFilter filter) {
+        return metrics.observe(RagMetrics.CHAT, () -> answer(query, query, filter, ConversationHistory.empty()));
+    }
+    
+    /**
+     * Generate a response that continues a conversation session. The query is rewritten from
+     * the session history before retrieval, and the exchange is added to the history.
+     */
+    public String generateResponse(String query, MetadataFilter filter, String sessionId) {
+        return metrics.observe(RagMetrics.CHAT, () -> answerTurn(query, filter, sessionId));
+    }
+    
+    private String answerTurn(String query, MetadataFilter filter, String sessionId) {
+        ChatSession session = sessionService.beginTurn(sessionId);
+        String answer = null;
+        try {
+            ConversationHistory history = sessionService.history(session);
+            answer = answer(query, sessionService.rewriteQuery(history, query), filter, history);
+            return answer;
+        } finally {
+            sessionService.endTurn(session, query, answer);
+        }
+    }
+    
+    private String answer(String query, String searchQuery, MetadataFilter filter, ConversationHistory history) {
         // Search for relevant content
-        List<EmbeddingMatch<TextSegment>> searchResults = vectorDbService.search(query, 5);
-        
+        Embedding queryEmbedding = metrics.observe(RagMetrics.QUERY_EMBED, () -> vectorDbService.embedQuery(searchQuery));
+        List<EmbeddingMatch<TextSegment>> searchResults = retrieve(searchQuery, queryEmbedding, filter);
+        return answer(query, queryEmbedding, searchResults, history);
+    }
+    
+    /**
+     * Answer a query without history from segments already retrieved for it with
+     * {@link #retrieveAll}
+     */
+    public String answerRetrieved(String query, Embedding queryEmbedding, List<EmbeddingMatch<TextSegment>> searchResults) {
+        return metrics.observe(RagMetrics.CHAT,
+                () -> answer(query, queryEmbedding, searchResults, ConversationHistory.empty()));
+    }
+    
+    private String answer(String query, Embedding queryEmbedding, List<EmbeddingMatch<TextSegment>> searchResults,
+                          ConversationHistory history) {
         if (searchResults.isEmpty()) {
-            return "I don't have enough information to answer that question. Please upload relevant documents to help me provide a better answer.";
+            return NO_CONTEXT_RESPONSE;
+        }
+        
+        // Reuse the answer to a near-identical question over the same segments. An answer that
+        // continues a conversation depends on its history, so it is neither reused nor shared.
+        boolean cacheable = history.isEmpty();
+        Set<String> segmentIds = searchResults.stream()
+                .map(EmbeddingMatch::embeddingId)
+                .collect(Collectors.toSet());
+        long cacheGeneration = answerCache.generation();
+        Optional<String> cachedAnswer = cacheable ? answerCache.lookup(queryEmbedding, segmentIds) : Optional.empty();
+        if (cachedAnswer.isPresent()) {
+            log.info("Answered query from the answer cache");
+            return cachedAnswer.get();
         }
         
         // Extract text from search results
@@ -64,6 +182,132 @@ public class RagService {
                 .collect(Collectors.toList());
         
         // Generate response using LLM
-        return llmService.generateResponse(relevantChunks, query);
+        String answer = llmService.generateResponse(relevantChunks, query, history);
+        if (cacheable) {
+            answerCache.put(queryEmbedding, segmentIds, answer, cacheGeneration);
+        }
+        return answer;
+    }
+    
+    /**
+     * Stream a response to a user query using the RAG process. Cached and fallback
+     * answers are delivered as a single token.
+     */
+    public void streamResponse(String query, StreamingResponseHandler<String> handler) {
+        streamResponse(query, MetadataFilter.NONE, handler);
+    }
+    
+    /**
+     * Stream a response using only segments that match the filter
+     */
+    public void streamResponse(String query, MetadataFilter filter, StreamingResponseHandler<String> handler) {
+        metrics.observe(RagMetrics.CHAT, () -> stream(query, query, filter, ConversationHistory.empty(), handler));
+    }
+    
+    /**
+     * Stream a response that continues a conversation session, see
+     * {@link #generateResponse(String, MetadataFilter, String)}
+     */
+    public void streamResponse(String query, MetadataFilter filter, String sessionId, StreamingResponseHandler<String> handler) {
+        metrics.observe(RagMetrics.CHAT, () -> streamTurn(query, filter, sessionId, handler));
+    }
+    
+    private void streamTurn(String query, MetadataFilter filter, String sessionId, StreamingResponseHandler<String> handler) {
+        ChatSession session;
+        try {
+            session = sessionService.beginTurn(sessionId);
+        } catch (Exception e) {
+            handler.onError(e);
+            return;
+        }
+        // Ends the turn exactly once, recording the answer if there is one
+        AtomicBoolean turnEnded = new AtomicBoolean();
+        try {
+            ConversationHistory history = sessionService.history(session);
+            String searchQuery = sessionService.rewriteQuery(history, query);
+            stream(query, searchQuery, filter, history, new StreamingResponseHandler<>() {
+                @Override
+                public void onNext(String token) {
+                    handler.onNext(token);
+                }
+                
+                @Override
+                public void onComplete(Response<String> response) {
+                    if (turnEnded.compareAndSet(false, true)) {
+                        sessionService.endTurn(session, query, response.content());
+                    }
+                    handler.onComplete(response);
+                }
+                
+                @Override
+                public void onError(Throwable error) {
+                    if (turnEnded.compareAndSet(false, true)) {
+                        sessionService.endTurn(session, query, null);
+                    }
+                    handler.onError(error);
+                }
+            });
+        } finally {
+            if (turnEnded.compareAndSet(false, true)) {
+                sessionService.endTurn(session, query, null);
+            }
+        }
+    }
+    
+    private void stream(String query, String searchQuery, MetadataFilter filter, ConversationHistory history,
+                        StreamingResponseHandler<String> handler) {
+        Embedding queryEmbedding;
+        List<EmbeddingMatch<TextSegment>> searchResults;
+        try {
+            queryEmbedding = metrics.observe(RagMetrics.QUERY_EMBED, () -> vectorDbService.embedQuery(searchQuery));
+            searchResults = retrieve(searchQuery, queryEmbedding, filter);
+        } catch (Exception e) {
+            handler.onError(e);
+            return;
+        }
+        
+        if (searchResults.isEmpty()) {
+            handler.onNext(NO_CONTEXT_RESPONSE);
+            handler.onComplete(Response.from(NO_CONTEXT_RESPONSE));
+            return;
+        }
+        
+        // Like answers, streamed answers that continue a conversation are not cached
+        boolean cacheable = history.isEmpty();
+        Set<String> segmentIds = searchResults.stream()
+                .map(EmbeddingMatch::embeddingId)
+                .collect(Collectors.toSet());
+        long cacheGeneration = answerCache.generation();
+        Optional<String> cachedAnswer = cacheable ? answerCache.lookup(queryEmbedding, segmentIds) : Optional.empty();
+        if (cachedAnswer.isPresent()) {
+            log.info("Answered streamed query from the answer cache");
+            handler.onNext(cachedAnswer.get());
+            handler.onComplete(Response.from(cachedAnswer.get()));
+            return;
+        }
+        
+        List<String> relevantChunks = searchResults.stream()
+                .map(result -> result.embedded().text())
+                .collect(Collectors.toList());
+        
+        llmService.streamResponse(relevantChunks, query, history, new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+            
+            @Override
+            public void onComplete(Response<String> response) {
+                if (cacheable) {
+                    answerCache.put(queryEmbedding, segmentIds, response.content(), cacheGeneration);
+                }
+                handler.onComplete(response);
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
     }
 }
@@ -0,0 +1,196 @@
+package com.edun7.ragchatbot.service.batch;
+
+import com.edun7.ragchatbot.config.ChatConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.model.BatchChatResult;
+import com.edun7.ragchatbot.service.RagService;
+import com.edun7.ragchatbot.service.vectordb.MetadataFilter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers many independent questions in one request.
+ * <p>
+ * Queries are taken in groups of {@code batchRetrievalSize}: each group is embedded with one
+ * embedding call and retrieved with one multi-search, instead of an embedding and a search
+ * round trip per query. The LLM calls then fan out over a pool shared by all batches, with at
+ * most {@code batchConcurrency} in flight per batch, and the next group is retrieved while the
+ * last calls of the previous one are still running. When every worker is busy the batch answers
+ * on its own thread, which slows it down instead of failing queries.
+ * <p>
+ * Each batch is coordinated by a thread of its own bounded pool, so long batches never hold
+ * the workers that serve streaming chat. At most {@code batchMaxConcurrent} batches run at a
+ * time and further ones are rejected.
+ */
+@Slf4j
+@Service
+public class BatchChatService {
+
+    private final RagService ragService;
+    private final ChatConfig config;
+    private final ExecutorService answerExecutor;
+    private final ExecutorService coordinatorExecutor;
+
+    public BatchChatService(RagService ragService, ChatConfig config, ExecutorFactory executorFactory) {
+        this.ragService = ragService;
+        this.config = config;
+        this.answerExecutor = executorFactory.newBlockingExecutor("chat-batch-", config.getBatchThreads(), 0);
+        this.coordinatorExecutor = executorFactory.newBlockingExecutor("chat-batch-coordinator-",
+                Math.max(1, config.getBatchMaxConcurrent()), 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinatorExecutor.shutdownNow();
+        answerExecutor.shutdownNow();
+    }
+
+    /**
+     * Answer the queries on a coordinator thread, see {@link #answerAll}. The returned future
+     * completes once the batch is done, or exceptionally with the reason it failed.
+     *
+     * @throws RejectedExecutionException if {@code batchMaxConcurrent} batches are already running
+     */
+    public CompletableFuture<Void> submit(List<String> queries, MetadataFilter filter, BatchResultListener listener) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        coordinatorExecutor.execute(() -> {
+            try {
+                answerAll(queries, filter, listener);
+                done.complete(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done.completeExceptionally(e);
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Answer every query and pass each result to the listener as soon as it is ready. Returns
+     * once all queries are answered or the listener stopped the batch.
+     *
+     * @throws IllegalArgumentException if there are no queries or more than {@code batchMaxQueries}
+     */
+    public void answerAll(List<String> queries, MetadataFilter filter, BatchResultListener listener)
+            throws InterruptedException {
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("The batch has no queries");
+        }
+        if (queries.size() > config.getBatchMaxQueries()) {
+            throw new IllegalArgumentException("A batch can have at most " + config.getBatchMaxQueries() + " queries");
+        }
+
+        long start = System.nanoTime();
+        Batch batch = new Batch(queries, listener);
+        int groupSize = Math.max(1, config.getBatchRetrievalSize());
+        try {
+            for (int from = 0; from < queries.size() && !batch.stopped.get(); from += groupSize) {
+                answerGroup(batch, from, Math.min(from + groupSize, queries.size()), filter);
+            }
+            // Wait for the calls still in flight
+            batch.permits.acquire(batch.concurrency);
+        } catch (InterruptedException e) {
+            batch.stopped.set(true);
+            throw e;
+        }
+        log.info("Answered {} of {} batch queries ({} failed) in {} ms", batch.answered.get(), queries.size(),
+                batch.failed.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void answerGroup(Batch batch, int from, int to, MetadataFilter filter) throws InterruptedException {
+        List<String> queries = batch.queries.subList(from, to);
+        List<Embedding> embeddings;
+        List<List<EmbeddingMatch<TextSegment>>> searchResults;
+        try {
+            embeddings = ragService.embedQueries(queries);
+            searchResults = ragService.retrieveAll(queries, embeddings, filter);
+        } catch (Exception e) {
+            log.error("Failed to retrieve segments for batch queries {} to {}", from, to - 1, e);
+            for (int i = from; i < to && !batch.stopped.get(); i++) {
+                batch.failed(i, e);
+            }
+            return;
+        }
+
+        for (int i = from; i < to && !batch.stopped.get(); i++) {
+            int index = i;
+            Runnable answer = () -> {
+                try {
+                    String message = ragService.answerRetrieved(batch.queries.get(index),
+                            embeddings.get(index - from), searchResults.get(index - from));
+                    batch.answered(index, message);
+                } catch (Exception e) {
+                    log.warn("Failed to answer batch query {}: {}", index, e.getMessage());
+                    batch.failed(index, e);
+                } finally {
+                    batch.permits.release();
+                }
+            };
+            batch.permits.acquire();
+            try {
+                answerExecutor.execute(answer);
+            } catch (RejectedExecutionException e) {
+                answer.run();
+            }
+        }
+    }
+
+    private final class Batch {
+        private final List<String> queries;
+        private final BatchResultListener listener;
+        private final int concurrency = Math.max(1, config.getBatchConcurrency());
+        private final Semaphore permits = new Semaphore(concurrency);
+        private final AtomicBoolean stopped = new AtomicBoolean();
+        private final AtomicInteger answered = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private Batch(List<String> queries, BatchResultListener listener) {
+            this.queries = queries;
+            this.listener = listener;
+        }
+
+        private void answered(int index, String message) {
+            answered.incrementAndGet();
+            report(BatchChatResult.builder()
+                    .index(index)
+                    .query(queries.get(index))
+                    .message(message)
+                    .success(true)
+                    .timestamp(Instant.now().toEpochMilli())
+                    .build());
+        }
+
+        private void failed(int index, Exception error) {
+            failed.incrementAndGet();
+            report(BatchChatResult.builder()
+                    .index(index)
+                    .query(queries.get(index))
+                    .message("An error occurred while processing this query: " + error.getMessage())
+                    .success(false)
+                    .timestamp(Instant.now().toEpochMilli())
+                    .build());
+        }
+
+        private synchronized void report(BatchChatResult result) {
+            if (!stopped.get() && !listener.onResult(result)) {
+                stopped.set(true);
+            }
+        }
+    }
+}
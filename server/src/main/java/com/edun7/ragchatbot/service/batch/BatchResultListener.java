@@ -0,0 +1,17 @@
+package com.edun7.ragchatbot.service.batch;
+
+import com.edun7.ragchatbot.model.BatchChatResult;
+
+/**
+ * Receives the answers of a batch as they finish
+ */
+@FunctionalInterface
+public interface BatchResultListener {
+
+    /**
+     * Called once per query, from the thread that finished it but never concurrently
+     *
+     * @return false to stop the batch, e.g. because the client went away
+     */
+    boolean onResult(BatchChatResult result);
+}
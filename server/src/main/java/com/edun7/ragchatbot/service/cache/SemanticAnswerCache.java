@@ -0,0 +1,182 @@
+package com.edun7.ragchatbot.service.cache;
+
+import com.edun7.ragchatbot.config.AnswerCacheConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache of generated answers keyed by query embedding.
+ * <p>
+ * A lookup hits when a cached query is at least {@code similarityThreshold} cosine-similar to
+ * the new query and was answered from exactly the same set of retrieved segments. Entries
+ * expire after the TTL, the oldest entries are dropped beyond {@code maxEntries}, and
+ * {@link #invalidateAll()} is called whenever the indexed documents change. Answers computed
+ * before an invalidation are never stored after it.
+ */
+@Slf4j
+@Component
+public class SemanticAnswerCache {
+
+    private final AnswerCacheConfig config;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SemanticAnswerCache(AnswerCacheConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Current cache generation; pass it back to {@link #put} so that answers computed
+     * across an invalidation are discarded
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public Optional<String> lookup(Embedding queryEmbedding, Set<String> segmentIds) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+
+        float[] query = normalize(queryEmbedding.vector());
+        long now = System.nanoTime();
+        Entry best = null;
+        double bestSimilarity = config.getSimilarityThreshold();
+
+        lock.readLock().lock();
+        try {
+            for (Entry entry : entries) {
+                if (entry.expiresAtNanos - now <= 0 || !entry.segmentIds.equals(segmentIds)) {
+                    continue;
+                }
+                double similarity = dot(query, entry.vector);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (best == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        log.debug("Answer cache hit with similarity {}", bestSimilarity);
+        return Optional.of(best.answer);
+    }
+
+    public void put(Embedding queryEmbedding, Set<String> segmentIds, String answer, long expectedGeneration) {
+        if (!config.isEnabled() || config.getMaxEntries() <= 0) {
+            return;
+        }
+
+        Entry entry = new Entry(normalize(queryEmbedding.vector()), Set.copyOf(segmentIds), answer,
+                System.nanoTime() + config.getTtl().toNanos());
+
+        lock.writeLock().lock();
+        try {
+            if (generation.get() != expectedGeneration) {
+                return;
+            }
+            entries.addLast(entry);
+            evict();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Answer cache invalidated");
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAtNanos - now <= 0) {
+                iterator.remove();
+            }
+        }
+        while (entries.size() > config.getMaxEntries()) {
+            entries.removeFirst();
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static final class Entry {
+        private final float[] vector;
+        private final Set<String> segmentIds;
+        private final String answer;
+        private final long expiresAtNanos;
+
+        private Entry(float[] vector, Set<String> segmentIds, String answer, long expiresAtNanos) {
+            this.vector = vector;
+            this.segmentIds = segmentIds;
+            this.answer = answer;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
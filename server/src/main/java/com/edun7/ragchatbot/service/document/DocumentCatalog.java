@@ -0,0 +1,451 @@
+package com.edun7.ragchatbot.service.document;
+
+import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentPage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Stored documents indexed by id, name, content hash and upload date.
+ * <p>
+ * Lookups and listings read concurrent maps without locking. Changes are serialized: each
+ * one is appended to {@code catalog.log} as a checksummed record before the indexes are
+ * updated, so the catalog survives restarts. Every {@code snapshotInterval} changes the
+ * whole catalog is written to {@code catalog.snapshot} and the log starts over. Opening a
+ * catalog loads the snapshot and replays the log; a record torn by a crash is cut off.
+ * <p>
+ * Stored {@link DocumentInfo}s are shared with readers and must not be modified; change a
+ * document by putting a modified copy.
+ */
+@Slf4j
+public final class DocumentCatalog implements Closeable {
+
+    private static final int MAGIC = 0x52414743;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path directory;
+    private final Path snapshotPath;
+    private final Path logPath;
+    private final int snapshotInterval;
+    private final boolean syncWrites;
+
+    private final Map<String, DocumentInfo> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByName = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByContentHash = new ConcurrentHashMap<>();
+    private final NavigableMap<UploadKey, DocumentInfo> byUploadDate = new ConcurrentSkipListMap<>();
+
+    // Guards the log and the index updates that follow each append
+    private final Object writeLock = new Object();
+    private final FileChannel logFile;
+    private int logRecords;
+
+    public DocumentCatalog(Path directory, int snapshotInterval, boolean syncWrites) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.snapshotPath = directory.resolve("catalog.snapshot");
+        this.logPath = directory.resolve("catalog.log");
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.syncWrites = syncWrites;
+
+        loadSnapshot();
+        this.logFile = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayLog();
+        if (logRecords >= this.snapshotInterval) {
+            synchronized (writeLock) {
+                writeSnapshot();
+            }
+        }
+        log.info("Document catalog at {} holds {} documents", directory, byId.size());
+    }
+
+    public Optional<DocumentInfo> get(String documentId) {
+        return Optional.ofNullable(byId.get(documentId));
+    }
+
+    public Optional<DocumentInfo> findByName(String name) {
+        return Optional.ofNullable(idsByName.get(name)).map(byId::get);
+    }
+
+    public Optional<DocumentInfo> findByContentHash(String contentHash) {
+        return Optional.ofNullable(idsByContentHash.get(contentHash)).map(byId::get);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Up to {@code limit} documents in upload order, starting after the document the cursor
+     * of the previous page points to, or at the oldest document without a cursor. Pages are
+     * weakly consistent: documents changed while paging may be missed or seen twice.
+     *
+     * @throws IllegalArgumentException if the cursor was not returned by this method
+     */
+    public DocumentPage page(String cursor, int limit) {
+        NavigableMap<UploadKey, DocumentInfo> remaining = cursor == null || cursor.isEmpty()
+                ? byUploadDate
+                : byUploadDate.tailMap(UploadKey.decode(cursor), false);
+        List<DocumentInfo> documents = new ArrayList<>(Math.min(limit, 64));
+        UploadKey last = null;
+        boolean more = false;
+        for (Map.Entry<UploadKey, DocumentInfo> entry : remaining.entrySet()) {
+            if (documents.size() == limit) {
+                more = true;
+                break;
+            }
+            documents.add(entry.getValue());
+            last = entry.getKey();
+        }
+        return DocumentPage.builder()
+                .documents(documents)
+                .nextCursor(more ? last.encode() : null)
+                .total(byId.size())
+                .build();
+    }
+
+    /**
+     * Store a document, replacing the one with the same id
+     */
+    public void put(DocumentInfo document) throws IOException {
+        synchronized (writeLock) {
+            append(encode(PUT, document));
+            index(document);
+            compactIfDue();
+        }
+    }
+
+    /**
+     * Remove a document, returning false if there is none with the id
+     */
+    public boolean remove(String documentId) throws IOException {
+        synchronized (writeLock) {
+            if (!byId.containsKey(documentId)) {
+                return false;
+            }
+            append(encode(REMOVE, DocumentInfo.builder().id(documentId).build()));
+            unindex(documentId);
+            compactIfDue();
+            return true;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            logFile.close();
+        }
+    }
+
+    private void index(DocumentInfo document) {
+        DocumentInfo previous = byId.put(document.getId(), document);
+        // Add the new keys before dropping the old ones, so concurrent readers always find the document
+        UploadKey key = UploadKey.of(document);
+        byUploadDate.put(key, document);
+        idsByName.put(document.getName(), document.getId());
+        if (document.getContentHash() != null) {
+            idsByContentHash.put(document.getContentHash(), document.getId());
+        }
+        if (previous != null) {
+            UploadKey previousKey = UploadKey.of(previous);
+            if (!previousKey.equals(key)) {
+                byUploadDate.remove(previousKey);
+            }
+            if (!previous.getName().equals(document.getName())) {
+                idsByName.remove(previous.getName(), previous.getId());
+            }
+            if (previous.getContentHash() != null && !previous.getContentHash().equals(document.getContentHash())) {
+                idsByContentHash.remove(previous.getContentHash(), previous.getId());
+            }
+        }
+    }
+
+    private void unindex(String documentId) {
+        DocumentInfo previous = byId.remove(documentId);
+        if (previous == null) {
+            return;
+        }
+        byUploadDate.remove(UploadKey.of(previous));
+        idsByName.remove(previous.getName(), documentId);
+        if (previous.getContentHash() != null) {
+            idsByContentHash.remove(previous.getContentHash(), documentId);
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte operation = in.readByte();
+        DocumentInfo document = DocumentInfo.builder()
+                .id(readString(in))
+                .name(readString(in))
+                .type(readString(in))
+                .size(in.readLong())
+                .uploadDate(readString(in))
+                .contentHash(readString(in))
+                .revision(in.readInt())
+                .build();
+        if (operation == PUT) {
+            index(document);
+        } else if (operation == REMOVE) {
+            unindex(document.getId());
+        } else {
+            throw new IOException("Unknown catalog operation " + operation);
+        }
+    }
+
+    private void append(byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .flip();
+        long end = logFile.size();
+        try {
+            while (frame.hasRemaining()) {
+                logFile.write(frame, end + frame.position());
+            }
+            if (syncWrites) {
+                logFile.force(false);
+            }
+        } catch (IOException e) {
+            // Do not leave a partial record in front of the next append
+            logFile.truncate(end);
+            throw e;
+        }
+        logRecords++;
+    }
+
+    private void compactIfDue() {
+        if (logRecords < snapshotInterval) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            // The change is already in the log, try again after the next one
+            log.warn("Failed to write a snapshot of the document catalog: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write every document to a new snapshot and empty the log. The snapshot replaces the old
+     * one atomically; a crash before the log is emptied replays changes the snapshot already
+     * holds, which is harmless.
+     */
+    private void writeSnapshot() throws IOException {
+        long start = System.nanoTime();
+        Path temporary = directory.resolve("catalog.snapshot.tmp");
+        try (OutputStream file = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (DocumentInfo document : byId.values()) {
+                byte[] payload = encode(PUT, document);
+                out.writeInt(payload.length);
+                out.writeInt(checksum(payload));
+                out.write(payload);
+            }
+            out.flush();
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        logFile.truncate(HEADER_BYTES);
+        logFile.force(true);
+        logRecords = 0;
+        log.debug("Wrote catalog snapshot of {} documents in {} ms", byId.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        try (InputStream file = Files.newInputStream(snapshotPath);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a document catalog snapshot: " + snapshotPath);
+            }
+            byte[] payload;
+            while ((payload = readFrame(in)) != null) {
+                apply(payload);
+            }
+        } catch (EOFException | CorruptRecordException e) {
+            throw new IOException("Document catalog snapshot " + snapshotPath + " is corrupt", e);
+        }
+    }
+
+    private void replayLog() throws IOException {
+        if (logFile.size() < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            logFile.truncate(0);
+            logFile.write(header, 0);
+            logFile.force(true);
+            return;
+        }
+        long position = HEADER_BYTES;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a document catalog log: " + logPath);
+            }
+            byte[] payload;
+            while ((payload = readFrame(in)) != null) {
+                apply(payload);
+                position += FRAME_HEADER_BYTES + payload.length;
+                logRecords++;
+            }
+        } catch (EOFException | CorruptRecordException e) {
+            // Fall through and cut the log after the last complete record
+        }
+        if (position < logFile.size()) {
+            log.warn("Dropping {} bytes of an incomplete record at the end of {}", logFile.size() - position, logPath);
+            logFile.truncate(position);
+            logFile.force(true);
+        }
+    }
+
+    /**
+     * Next record payload, or null at the end of the stream
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int checksum = in.readInt();
+        if (length < 0 || length > (1 << 20)) {
+            throw new CorruptRecordException();
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        if (checksum(payload) != checksum) {
+            throw new CorruptRecordException();
+        }
+        return payload;
+    }
+
+    private static byte[] encode(byte operation, DocumentInfo document) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            writeString(out, document.getId());
+            writeString(out, document.getName());
+            writeString(out, document.getType());
+            out.writeLong(document.getSize());
+            writeString(out, document.getUploadDate());
+            writeString(out, document.getContentHash());
+            out.writeInt(document.getRevision());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to a byte array cannot fail", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Position of a document in upload order; the id breaks ties between equal upload dates
+     */
+    private record UploadKey(String uploadDate, String id) implements Comparable<UploadKey> {
+
+        private static final Comparator<UploadKey> ORDER = Comparator
+                .comparing(UploadKey::uploadDate, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(UploadKey::id);
+
+        static UploadKey of(DocumentInfo document) {
+            return new UploadKey(document.getUploadDate(), document.getId());
+        }
+
+        String encode() {
+            String key = (uploadDate == null ? "" : uploadDate) + "\n" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static UploadKey decode(String cursor) {
+            String key;
+            try {
+                key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int separator = key.indexOf('\n');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String uploadDate = key.substring(0, separator);
+            return new UploadKey(uploadDate.isEmpty() ? null : uploadDate, key.substring(separator + 1));
+        }
+
+        @Override
+        public int compareTo(UploadKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private static final class CorruptRecordException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -3,36 +3,88 @@ package com.edun7.ragchatbot.service.document;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.web.multipart.MultipartFile;
 
-import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentPage;
+import com.edun7.ragchatbot.model.DocumentUpload;
 
+import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.segment.TextSegment;
 
 public interface DocumentService {
     /**
-     * Process and store a document
+     * Process a new revision of the document with the given id, or store a new document if the
+     * id is null. An upload with the same content as an indexed document, or as the document it
+     * revises, is not saved again. The file of a revision is only staged; {@link #storeRevision}
+     * replaces the stored file with it once the revision is accepted for ingestion. The returned
+     * document carries the content hash, which the catalog only records once
+     * {@link #recordIndexedContent} confirms that the content is indexed.
+     *
+     * @throws IllegalArgumentException if there is no document with the given id
      */
-    DocumentInfo processDocument(MultipartFile file) throws IOException;
+    DocumentUpload processDocument(MultipartFile file, String documentId) throws IOException;
     
     /**
-     * Get information about all stored documents
+     * Replace the stored file and catalog entry of a document with its staged revision. Must not
+     * run while the document is being ingested.
      */
-    List<DocumentInfo> getAllDocuments();
+    void storeRevision(DocumentUpload upload) throws IOException;
+    
+    /**
+     * Drop everything an upload stored, after it was not accepted for ingestion
+     */
+    void discardUpload(DocumentUpload upload);
+    
+    /**
+     * Get up to {@code limit} stored documents in upload order, after the document the cursor
+     * of the previous page points to
+     *
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    DocumentPage getDocuments(String cursor, int limit);
     
     /**
      * Delete a document by ID
      */
     boolean deleteDocument(String documentId);
     
+    /**
+     * Record the hash of the content indexed for a document, so that uploading the same content
+     * again is skipped as a duplicate
+     */
+    void recordIndexedContent(String documentId, String contentHash);
+    
+    /**
+     * Get the stored file of a document by ID, or null if the document is unknown
+     */
+    File getDocumentById(String documentId);
+    
     /**
      * Extract text content from a document file
      */
     String extractContent(File file) throws IOException;
     
+    /**
+     * Extract the text of a document file page by page, passing each page to the consumer in order
+     */
+    void extractPages(File file, PageConsumer consumer) throws IOException;
+    
     /**
      * Split document content into text segments
      */
     List<TextSegment> splitContent(String content, int maxSegmentSize, int overlap);
+    
+    /**
+     * Extract and split a document file, passing each segment to the consumer as soon as it is
+     * complete. Produces the same segments as {@link #splitContent} on the extracted content,
+     * each carrying a copy of the document metadata.
+     */
+    default void extractSegments(File file, int maxSegmentSize, int overlap, Metadata documentMetadata,
+                                 Consumer<TextSegment> consumer) throws IOException {
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(maxSegmentSize, overlap, documentMetadata, consumer);
+        extractPages(file, splitter);
+        splitter.finish();
+    }
 }
@@ -1,30 +1,37 @@
 package com.edun7.ragchatbot.service.document;
 
+import com.edun7.ragchatbot.config.DocumentCatalogConfig;
 import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentPage;
+import com.edun7.ragchatbot.model.DocumentUpload;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
 import dev.langchain4j.data.segment.TextSegment;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -36,10 +43,26 @@ public class PDFDocumentService implements DocumentService {
     @Value("${app.upload.dir}")
     private String uploadDir;
     
-    private final List<DocumentInfo> documents = new ArrayList<>();
+    private final DocumentCatalog catalog;
+    
+    // Makes the duplicate and revision checks of an upload atomic with storing its outcome
+    private final Object uploadLock = new Object();
+    
+    private final PdfPageExtractor pageExtractor;
+    
+    public PDFDocumentService(PdfPageExtractor pageExtractor, DocumentCatalogConfig catalogConfig) throws IOException {
+        this.pageExtractor = pageExtractor;
+        this.catalog = new DocumentCatalog(Path.of(catalogConfig.getDataDir()), catalogConfig.getSnapshotInterval(),
+                catalogConfig.isSyncWrites());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException {
+        catalog.close();
+    }
     
     @Override
-    public DocumentInfo processDocument(MultipartFile file) throws IOException {
+    public DocumentUpload processDocument(MultipartFile file, String documentId) throws IOException {
         // Ensure upload directory exists
         Path uploadPath = Paths.get(uploadDir);
         if (!Files.exists(uploadPath)) {
@@ -52,42 +75,144 @@ public class PDFDocumentService implements DocumentService {
         String uniqueId = UUID.randomUUID().toString();
         String filename = uniqueId + fileExtension;
         
-        // Save the file
+        // Save the file, hashing its content on the way
         Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Create document info
-        DocumentInfo documentInfo = DocumentInfo.builder()
-                .id(uniqueId)
-                .name(originalFilename)
-                .type(file.getContentType())
-                .size(file.getSize())
-                .uploadDate(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                .build();
-        
-        documents.add(documentInfo);
+        MessageDigest digest = SegmentMetadata.sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, filePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        String uploadDate = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         
-        return documentInfo;
+        synchronized (uploadLock) {
+            // A new revision keeps the id and name of the document, its file is only staged for now
+            if (documentId != null) {
+                Optional<DocumentInfo> existing = catalog.get(documentId);
+                if (existing.isEmpty()) {
+                    Files.deleteIfExists(filePath);
+                    throw new IllegalArgumentException("Document not found: " + documentId);
+                }
+                if (contentHash.equals(existing.get().getContentHash())) {
+                    Files.deleteIfExists(filePath);
+                    log.info("Upload of {} is identical to document {}", originalFilename, documentId);
+                    return DocumentUpload.builder().document(existing.get()).duplicate(true).build();
+                }
+                DocumentInfo revision = existing.get().toBuilder()
+                        .type(file.getContentType())
+                        .size(file.getSize())
+                        .uploadDate(uploadDate)
+                        .contentHash(contentHash)
+                        .revision(existing.get().getRevision() + 1)
+                        .build();
+                log.info("Upload of {} is revision {} of document {}", originalFilename,
+                        revision.getRevision(), revision.getId());
+                return DocumentUpload.builder().document(revision).revision(true).stagedFile(filePath).build();
+            }
+            
+            // Identical content is already stored and indexed; hashes are only recorded once indexed
+            Optional<DocumentInfo> identical = catalog.findByContentHash(contentHash);
+            if (identical.isPresent()) {
+                Files.deleteIfExists(filePath);
+                log.info("Upload of {} is identical to document {}", originalFilename, identical.get().getId());
+                return DocumentUpload.builder().document(identical.get()).duplicate(true).build();
+            }
+            
+            // Create document info
+            DocumentInfo documentInfo = DocumentInfo.builder()
+                    .id(uniqueId)
+                    .name(originalFilename)
+                    .type(file.getContentType())
+                    .size(file.getSize())
+                    .uploadDate(uploadDate)
+                    .contentHash(contentHash)
+                    .revision(1)
+                    .build();
+            
+            catalog.put(documentInfo.toBuilder().contentHash(null).build());
+            
+            return DocumentUpload.builder().document(documentInfo).build();
+        }
+    }
+    
+    @Override
+    public void storeRevision(DocumentUpload upload) throws IOException {
+        DocumentInfo revision = upload.getDocument();
+        synchronized (uploadLock) {
+            try {
+                File target = getDocumentById(revision.getId());
+                if (target == null) {
+                    throw new IOException("Document " + revision.getId() + " was deleted");
+                }
+                Files.move(upload.getStagedFile(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(upload.getStagedFile());
+                throw e;
+            }
+            // The content hash is recorded once the revision is indexed
+            catalog.put(revision.toBuilder().contentHash(null).build());
+        }
+    }
+    
+    @Override
+    public void discardUpload(DocumentUpload upload) {
+        try {
+            if (upload.isRevision()) {
+                Files.deleteIfExists(upload.getStagedFile());
+                return;
+            }
+            File file = getDocumentById(upload.getDocument().getId());
+            deleteDocument(upload.getDocument().getId());
+            if (file != null) {
+                Files.deleteIfExists(file.toPath());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete the file of upload {}", upload.getDocument().getId(), e);
+        }
     }
     
     @Override
-    public List<DocumentInfo> getAllDocuments() {
-        return documents;
+    public DocumentPage getDocuments(String cursor, int limit) {
+        return catalog.page(cursor, limit);
     }
     
     @Override
     public boolean deleteDocument(String documentId) {
-        return documents.removeIf(doc -> doc.getId().equals(documentId));
+        synchronized (uploadLock) {
+            try {
+                return catalog.remove(documentId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete document " + documentId + " from the catalog", e);
+            }
+        }
     }
     
     @Override
-    public String extractContent(File file) throws IOException {
-        try (PDDocument document = PDDocument.load(file)) {
-            PDFTextStripper pdfStripper = new PDFTextStripper();
-            return pdfStripper.getText(document);
+    public void recordIndexedContent(String documentId, String contentHash) {
+        synchronized (uploadLock) {
+            Optional<DocumentInfo> document = catalog.get(documentId);
+            if (document.isEmpty() || Objects.equals(document.get().getContentHash(), contentHash)) {
+                return;
+            }
+            try {
+                catalog.put(document.get().toBuilder().contentHash(contentHash).build());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to update document " + documentId + " in the catalog", e);
+            }
         }
     }
     
+    @Override
+    public String extractContent(File file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        extractPages(file, (pageNumber, text) -> content.append(text));
+        return content.toString();
+    }
+    
+    @Override
+    public void extractPages(File file, PageConsumer consumer) throws IOException {
+        pageExtractor.extract(file, consumer);
+    }
+    
     @Override
     public List<TextSegment> splitContent(String content, int maxSegmentSize, int overlap) {
         Document document = new Document(content, new Metadata());
@@ -102,13 +227,9 @@ public class PDFDocumentService implements DocumentService {
         return splitContent(content, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_OVERLAP);
     }
     
-    /**
-     * Get a document file by its ID
-     */
+    @Override
     public File getDocumentById(String documentId) {
-        return documents.stream()
-                .filter(doc -> doc.getId().equals(documentId))
-                .findFirst()
+        return catalog.get(documentId)
                 .map(doc -> {
                     String fileExtension = doc.getName().substring(doc.getName().lastIndexOf("."));
                     String filename = documentId + fileExtension;
@@ -0,0 +1,14 @@
+package com.edun7.ragchatbot.service.document;
+
+/**
+ * Receives the text of a document one page at a time, in page order
+ */
+@FunctionalInterface
+public interface PageConsumer {
+
+    /**
+     * @param pageNumber 1-based page number
+     * @param text       extracted text of the page
+     */
+    void accept(int pageNumber, String text);
+}
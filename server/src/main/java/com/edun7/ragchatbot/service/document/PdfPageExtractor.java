@@ -0,0 +1,114 @@
+package com.edun7.ragchatbot.service.document;
+
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.IngestionConfig;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts PDF text page by page, parsing page ranges in parallel.
+ * <p>
+ * PDFBox documents are not thread-safe, so every range task loads its own copy of the file.
+ * Each copy buffers at most {@code extractMainMemoryBytes} on the heap and spills the rest to a
+ * scratch file. Only {@code extractParallelism} ranges of a document are in flight at once,
+ * and pages reach the consumer in order as soon as their range is done. Memory therefore
+ * depends on the window size, not on the length of the document.
+ */
+@Slf4j
+@Component
+public class PdfPageExtractor {
+
+    private final IngestionConfig config;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final RagMetrics metrics;
+
+    public PdfPageExtractor(IngestionConfig config, ExecutorFactory executorFactory, RagMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.parallelism = config.resolveExtractParallelism();
+        this.executor = executorFactory.newCpuExecutor("pdf-extract-", parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Extract every page of a PDF and pass the text to the consumer in page order
+     */
+    public void extract(File file, PageConsumer consumer) throws IOException {
+        long start = System.nanoTime();
+        int pageCount;
+        try (PDDocument document = load(file)) {
+            pageCount = document.getNumberOfPages();
+        }
+
+        int pagesPerTask = Math.max(1, config.getExtractPagesPerTask());
+        Deque<Future<List<String>>> window = new ArrayDeque<>();
+        int nextPage = 1;
+        int emitted = 0;
+        try {
+            while (nextPage <= pageCount || !window.isEmpty()) {
+                // Keep the window full, then hand over the oldest range once it is done
+                while (nextPage <= pageCount && window.size() < parallelism) {
+                    int first = nextPage;
+                    int last = Math.min(pageCount, first + pagesPerTask - 1);
+                    window.add(executor.submit(() ->
+                            metrics.observeChecked(RagMetrics.EXTRACT, () -> extractRange(file, first, last))));
+                    nextPage = last + 1;
+                }
+                for (String text : window.poll().get()) {
+                    consumer.accept(++emitted, text);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting " + file.getName(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to extract " + file.getName(), e.getCause());
+        } finally {
+            window.forEach(range -> range.cancel(true));
+        }
+
+        log.debug("Extracted {} pages of {} in {} ms", pageCount, file.getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private List<String> extractRange(File file, int firstPage, int lastPage) throws IOException {
+        try (PDDocument document = load(file)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<String> pages = new ArrayList<>(lastPage - firstPage + 1);
+            for (int page = firstPage; page <= lastPage; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
+            }
+            return pages;
+        }
+    }
+
+    private PDDocument load(File file) throws IOException {
+        return PDDocument.load(file, MemoryUsageSetting.setupMixed(config.getExtractMainMemoryBytes()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.edun7.ragchatbot.service.document;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Metadata keys attached to indexed segments
+ */
+public final class SegmentMetadata {
+
+    /**
+     * Ordinal of the segment within the revision that indexed it. A segment reused by a later
+     * revision keeps its earlier ordinal, so use it for ordering hints only.
+     */
+    public static final String INDEX = "index";
+
+    /**
+     * Page the segment starts on
+     */
+    public static final String PAGE = "page";
+
+    /**
+     * Id of the document the segment was split from
+     */
+    public static final String DOCUMENT_ID = "document_id";
+
+    /**
+     * SHA-256 of the segment's page and text, see {@link #hash(TextSegment)}
+     */
+    public static final String SEGMENT_HASH = "segment_hash";
+
+    private SegmentMetadata() {
+    }
+
+    /**
+     * Hex-encoded SHA-256 of a segment's {@link #PAGE} and text. A re-indexed document reuses
+     * the stored segments with the same hash, so the page is part of it: a segment whose text
+     * moved to another page is indexed again and cited with its new page.
+     */
+    public static String hash(TextSegment segment) {
+        String page = segment.metadata(PAGE);
+        return hash((page != null ? page : "") + "\n" + segment.text());
+    }
+
+    /**
+     * Hex-encoded SHA-256 of a text
+     */
+    public static String hash(String text) {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.edun7.ragchatbot.service.document;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentBySentenceSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Paragraph splitter that consumes a document page by page and emits segments as soon as
+ * they are complete, instead of splitting the fully extracted text at the end.
+ * <p>
+ * Produces the same segments as langchain4j's {@code DocumentByParagraphSplitter} on the
+ * concatenated text: paragraphs are separated by blank lines, packed greedily up to
+ * {@code maxSegmentSize} characters joined by a blank line, and paragraphs that do not fit
+ * on their own are split by sentence. Only the unfinished paragraph at the end of the text
+ * seen so far is buffered. Text without blank lines, common in extracted PDF pages, is cut at
+ * its last sentence end once it exceeds {@value #MAX_PENDING_SEGMENTS} segments, so only such
+ * very long paragraphs deviate from the langchain4j splitter. Every segment carries its ordinal and the page its first paragraph
+ * starts on, see {@link SegmentMetadata}.
+ * <p>
+ * Not thread-safe; use one instance per document.
+ */
+public class StreamingDocumentSplitter implements PageConsumer {
+
+    private static final Pattern PARAGRAPH_SEPARATOR = Pattern.compile("\\s*\\R\\s*\\R\\s*");
+    private static final String JOIN_DELIMITER = "\n\n";
+    private static final Pattern SENTENCE_END = Pattern.compile("[.!?]\\s+(?=\\S)");
+    // Segments of text buffered without a paragraph break before it is cut at a sentence end
+    private static final int MAX_PENDING_SEGMENTS = 4;
+
+    private final int maxSegmentSize;
+    private final int maxOverlapSize;
+    private final Metadata documentMetadata;
+    private final Consumer<TextSegment> sink;
+
+    // Text after the last complete paragraph, and the page each part of it came from
+    private final StringBuilder pending = new StringBuilder();
+    private int[] pageStarts = new int[8];
+    private int[] pageNumbers = new int[8];
+    private int pageCount;
+    // Separators can only start in the whitespace at the end of the pending text
+    private int scanFrom;
+
+    private StringBuilder segment = new StringBuilder();
+    private int segmentPage;
+    private int lastPage;
+    private String overlap;
+    private String lastEmitted;
+    private int segmentIndex;
+    private DocumentBySentenceSplitter sentenceSplitter;
+    private boolean finished;
+
+    public StreamingDocumentSplitter(int maxSegmentSize, int maxOverlapSize, Metadata documentMetadata,
+                                     Consumer<TextSegment> sink) {
+        if (maxSegmentSize <= 0) {
+            throw new IllegalArgumentException("maxSegmentSize must be greater than zero");
+        }
+        if (maxOverlapSize < 0 || maxOverlapSize > maxSegmentSize) {
+            throw new IllegalArgumentException("maxOverlapSize must be between 0 and " + maxSegmentSize);
+        }
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxOverlapSize = maxOverlapSize;
+        this.documentMetadata = documentMetadata;
+        this.sink = sink;
+    }
+
+    /**
+     * Split everything readable from {@code reader} as a single page
+     */
+    public void split(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            append(1, buffer, read);
+        }
+        finish();
+    }
+
+    @Override
+    public void accept(int pageNumber, String text) {
+        append(pageNumber, text.toCharArray(), text.length());
+    }
+
+    /**
+     * Emit the segments of the remaining text. No more pages may be added afterwards.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        // Every remaining separator is final now. Empty paragraphs only occur at either end of
+        // the text, where they change nothing, and String.split drops the trailing ones anyway.
+        Matcher matcher = PARAGRAPH_SEPARATOR.matcher(pending);
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                paragraph(pending.substring(start, matcher.start()), pageAt(start));
+            }
+            start = matcher.end();
+        }
+        if (start < pending.length()) {
+            paragraph(pending.substring(start), pageAt(start));
+        }
+        pending.setLength(0);
+        pageCount = 0;
+        scanFrom = 0;
+        if (segment.length() > 0 && !build().equals(overlap)) {
+            emit(build(), segmentPage);
+        }
+    }
+
+    /**
+     * Number of segments emitted so far
+     */
+    public int getSegmentCount() {
+        return segmentIndex;
+    }
+
+    private void append(int pageNumber, char[] text, int length) {
+        if (finished) {
+            throw new IllegalStateException("Splitter is already finished");
+        }
+        if (pageCount == pageStarts.length) {
+            pageStarts = Arrays.copyOf(pageStarts, pageCount * 2);
+            pageNumbers = Arrays.copyOf(pageNumbers, pageCount * 2);
+        }
+        pageStarts[pageCount] = pending.length();
+        pageNumbers[pageCount++] = pageNumber;
+        pending.append(text, 0, length);
+        drainParagraphs();
+    }
+
+    /**
+     * Emit every paragraph whose end is known. A separator is final once non-whitespace text
+     * follows it, since more whitespace could still extend it. The scan resumes where the
+     * previous one left off.
+     */
+    private void drainParagraphs() {
+        Matcher matcher = PARAGRAPH_SEPARATOR.matcher(pending);
+        int start = 0;
+        boolean found = matcher.find(scanFrom);
+        while (found && matcher.end() < pending.length()) {
+            paragraph(pending.substring(start, matcher.start()), pageAt(start));
+            start = matcher.end();
+            found = matcher.find();
+        }
+        if (start > 0) {
+            remove(start);
+        }
+        if (pending.length() > MAX_PENDING_SEGMENTS * maxSegmentSize) {
+            cutLongParagraph();
+        }
+
+        scanFrom = trailingWhitespaceStart();
+    }
+
+    /**
+     * Emit the pending text up to its last sentence end as a paragraph of its own. Without a
+     * sentence end it is cut at its last whitespace, and without whitespace before its end
+     * all of it is emitted.
+     */
+    private void cutLongParagraph() {
+        int end = trailingWhitespaceStart();
+        int cut = end;
+        int next = end;
+        Matcher matcher = SENTENCE_END.matcher(pending);
+        while (matcher.find()) {
+            cut = matcher.start() + 1;
+            next = matcher.end();
+        }
+        if (cut == end) {
+            for (int i = end - 1; i > 0; i--) {
+                if (Character.isWhitespace(pending.charAt(i))) {
+                    next = i + 1;
+                    while (i > 0 && Character.isWhitespace(pending.charAt(i - 1))) {
+                        i--;
+                    }
+                    cut = i;
+                    break;
+                }
+            }
+        }
+        if (cut > 0) {
+            paragraph(pending.substring(0, cut), pageAt(0));
+            remove(next);
+        }
+    }
+
+    /**
+     * Offset of the whitespace at the end of the pending text, where a separator may still grow
+     */
+    private int trailingWhitespaceStart() {
+        int end = pending.length();
+        while (end > 0 && (Character.isWhitespace(pending.charAt(end - 1)) || pending.charAt(end - 1) == '\u0085')) {
+            end--;
+        }
+        return end;
+    }
+
+    private void remove(int length) {
+        pending.delete(0, length);
+        shiftPages(length);
+    }
+
+    private int pageAt(int offset) {
+        int page = pageNumbers[0];
+        for (int i = 0; i < pageCount && pageStarts[i] <= offset; i++) {
+            page = pageNumbers[i];
+        }
+        return page;
+    }
+
+    private void shiftPages(int removed) {
+        int kept = 0;
+        for (int i = 0; i < pageCount; i++) {
+            int start = pageStarts[i] - removed;
+            // Keep the page the remaining text starts on, and every page after it
+            if (start > 0 || i + 1 == pageCount || pageStarts[i + 1] - removed > 0) {
+                pageStarts[kept] = Math.max(0, start);
+                pageNumbers[kept++] = pageNumbers[i];
+            }
+        }
+        pageCount = kept;
+    }
+
+    /**
+     * Add one paragraph, following the steps of {@code HierarchicalDocumentSplitter.split}
+     */
+    private void paragraph(String text, int page) {
+        if (hasSpaceFor(text)) {
+            append(text, page);
+            return;
+        }
+        if (segment.length() > 0 && !build().equals(overlap)) {
+            String built = build();
+            emit(built, segmentPage);
+            segment = new StringBuilder();
+            overlap = overlapFrom(built);
+            append(overlap, lastPage);
+        }
+        if (hasSpaceFor(text)) {
+            append(text, page);
+            return;
+        }
+
+        append(text, page);
+        int first = segmentPage;
+        for (TextSegment sentences : sentenceSplitter().split(Document.from(build()))) {
+            emit(sentences.text(), first);
+            first = page;
+        }
+        segment = new StringBuilder();
+        overlap = overlapFrom(lastEmitted);
+        append(overlap, page);
+    }
+
+    private boolean hasSpaceFor(String text) {
+        if (segment.length() > 0) {
+            return segment.length() + JOIN_DELIMITER.length() + text.length() <= maxSegmentSize;
+        }
+        return text.length() <= maxSegmentSize;
+    }
+
+    private void append(String text, int page) {
+        if (segment.length() > 0) {
+            segment.append(JOIN_DELIMITER);
+        } else {
+            segmentPage = page;
+        }
+        segment.append(text);
+        lastPage = page;
+    }
+
+    private String build() {
+        return segment.toString().trim();
+    }
+
+    /**
+     * The trailing sentences of a segment that fit into the overlap
+     */
+    private String overlapFrom(String text) {
+        if (maxOverlapSize == 0 || text == null) {
+            return "";
+        }
+        String[] sentences = sentenceSplitter().split(text);
+        StringBuilder tail = new StringBuilder();
+        for (int i = sentences.length - 1; i >= 0; i--) {
+            String sentence = sentences[i];
+            int size = tail.length() > 0 ? tail.length() + JOIN_DELIMITER.length() + sentence.length() : sentence.length();
+            if (size > maxOverlapSize) {
+                return tail.toString().trim();
+            }
+            tail.insert(0, tail.length() > 0 ? sentence + JOIN_DELIMITER : sentence);
+        }
+        return "";
+    }
+
+    private void emit(String text, int page) {
+        Metadata metadata = documentMetadata.copy()
+                .add(SegmentMetadata.INDEX, segmentIndex++)
+                .add(SegmentMetadata.PAGE, page);
+        lastEmitted = text;
+        sink.accept(TextSegment.from(text, metadata));
+    }
+
+    private DocumentBySentenceSplitter sentenceSplitter() {
+        // Loads an OpenNLP model, so it is only created once a paragraph needs it
+        if (sentenceSplitter == null) {
+            sentenceSplitter = new DocumentBySentenceSplitter(maxSegmentSize, maxOverlapSize);
+        }
+        return sentenceSplitter;
+    }
+}
@@ -0,0 +1,301 @@
+package com.edun7.ragchatbot.service.embedding;
+
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.BgeSmallEnEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Owns the embedding model and runs all inference on a fixed-size pool.
+ * <p>
+ * Callers enqueue single texts or segments and get a future back. A dispatcher thread
+ * collects pending items until it has {@code maxBatchSize} of them or the oldest has waited
+ * {@code maxWait}, then runs one batched inference. When every inference worker is busy the
+ * dispatcher stops taking items, so batches grow under load instead of requests piling
+ * onto the cores.
+ * <p>
+ * Chat queries ({@link #embedQuery}) are taken ahead of every queued segment and fill the next
+ * batch first, so a query never waits behind the segments of a document being ingested. At
+ * most {@code maxPendingItems} segments may be queued before callers block; queries are not
+ * held back by that bound.
+ */
+@Slf4j
+@Service
+public class EmbeddingService {
+
+    private final EmbeddingModel embeddingModel;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingEmbedding> pending = new PriorityBlockingQueue<>(64, PendingEmbedding.ORDER);
+    private final Semaphore segmentCapacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService inferenceExecutor;
+    private final Semaphore inferenceSlots;
+    private final Thread dispatcher;
+    private final RagMetrics metrics;
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder embeddedItems = new LongAdder();
+
+    @Autowired
+    public EmbeddingService(EmbeddingConfig config, ExecutorFactory executorFactory, RagMetrics metrics) {
+        this(createModel(), config, executorFactory, metrics);
+    }
+
+    EmbeddingService(EmbeddingModel embeddingModel, EmbeddingConfig config, ExecutorFactory executorFactory,
+                     RagMetrics metrics) {
+        this.embeddingModel = embeddingModel;
+        this.metrics = metrics;
+        this.maxBatchSize = Math.max(1, config.getMaxBatchSize());
+        this.maxWaitNanos = config.getMaxWait().toNanos();
+        this.segmentCapacity = new Semaphore(Math.max(maxBatchSize, config.getMaxPendingItems()));
+
+        int inferenceThreads = config.resolveInferenceThreads();
+        this.inferenceExecutor = executorFactory.newCpuExecutor("embedding-inference-", inferenceThreads);
+        this.inferenceSlots = new Semaphore(inferenceThreads);
+
+        this.dispatcher = new Thread(this::dispatchLoop, "embedding-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        log.info("Embedding service started with {} inference threads, max batch {} and max wait {}",
+                inferenceThreads, maxBatchSize, config.getMaxWait());
+    }
+
+    private static EmbeddingModel createModel() {
+        try {
+            EmbeddingModel model = new BgeSmallEnEmbeddingModel();
+            log.info("Embedding model initialized successfully");
+            return model;
+        } catch (Exception e) {
+            log.error("Failed to initialize embedding model", e);
+            throw new RuntimeException("Failed to initialize embedding model", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        // Batches handed to the pool but not started would otherwise leave their callers waiting forever
+        for (Runnable task : inferenceExecutor.shutdownNow()) {
+            if (task instanceof BatchTask batchTask) {
+                fail(batchTask.batch);
+            }
+        }
+        List<PendingEmbedding> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        fail(abandoned);
+    }
+
+    /**
+     * Embed a single text, batched together with other concurrent requests
+     */
+    public CompletableFuture<Embedding> embed(String text) {
+        return enqueue(TextSegment.from(text), false);
+    }
+
+    /**
+     * Embed several segments; the result keeps the order of the input
+     */
+    public CompletableFuture<List<Embedding>> embedAll(List<TextSegment> segments) {
+        List<CompletableFuture<Embedding>> futures = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            futures.add(enqueue(segment, false));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<Embedding> embeddings = new ArrayList<>(futures.size());
+                    futures.forEach(future -> embeddings.add(future.join()));
+                    return embeddings;
+                });
+    }
+
+    /**
+     * Embed a single text and wait for the result
+     */
+    public Embedding embedNow(String text) {
+        return await(embed(text));
+    }
+
+    /**
+     * Embed a chat query ahead of all queued segments and wait for the result
+     */
+    public Embedding embedQuery(String query) {
+        return await(enqueue(TextSegment.from(query), true));
+    }
+
+    private static Embedding await(CompletableFuture<Embedding> embedding) {
+        try {
+            return embedding.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while embedding", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to embed text", e.getCause());
+        }
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getEmbeddedItemCount() {
+        return embeddedItems.sum();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private CompletableFuture<Embedding> enqueue(TextSegment segment, boolean query) {
+        PendingEmbedding item = new PendingEmbedding(segment, query, sequence.getAndIncrement());
+        if (!running) {
+            item.future.completeExceptionally(new IllegalStateException("Embedding service stopped"));
+            return item.future;
+        }
+        if (!query) {
+            try {
+                segmentCapacity.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                item.future.completeExceptionally(e);
+                return item.future;
+            }
+        }
+        pending.add(item);
+        // Shutdown may have drained the queue just before the item was added
+        if (!running && pending.remove(item)) {
+            item.future.completeExceptionally(new IllegalStateException("Embedding service stopped"));
+        }
+        return item.future;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                // Wait for a free worker first, so items keep accumulating while all are busy
+                inferenceSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<PendingEmbedding> batch = new ArrayList<>(maxBatchSize);
+            try {
+                nextBatch(batch);
+                inferenceExecutor.execute(new BatchTask(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch);
+                return;
+            } catch (Exception e) {
+                log.error("Embedding dispatcher failed to schedule a batch", e);
+                fail(batch);
+                inferenceSlots.release();
+            }
+        }
+    }
+
+    private void nextBatch(List<PendingEmbedding> batch) throws InterruptedException {
+        try {
+            batch.add(pending.take());
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (batch.size() < maxBatchSize) {
+                // Take whatever is already queued, queries first, then wait out the remainder of the window
+                if (pending.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                PendingEmbedding next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } finally {
+            // Make room for the segments taken off the queue
+            int segments = (int) batch.stream().filter(item -> !item.query).count();
+            segmentCapacity.release(segments);
+        }
+    }
+
+    private static void fail(List<PendingEmbedding> batch) {
+        IllegalStateException stopped = new IllegalStateException("Embedding service stopped");
+        batch.forEach(item -> item.future.completeExceptionally(stopped));
+    }
+
+    private void runBatch(List<PendingEmbedding> batch) {
+        try {
+            List<TextSegment> segments = new ArrayList<>(batch.size());
+            batch.forEach(item -> segments.add(item.segment));
+            List<Embedding> embeddings = metrics.observe(RagMetrics.EMBED, () -> embeddingModel.embedAll(segments).content());
+            metrics.embedBatch(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(embeddings.get(i));
+            }
+            batches.increment();
+            embeddedItems.add(batch.size());
+            log.debug("Embedded batch of {} items", batch.size());
+        } catch (Exception e) {
+            batch.forEach(item -> item.future.completeExceptionally(e));
+        }
+    }
+
+    private final class BatchTask implements Runnable {
+        private final List<PendingEmbedding> batch;
+
+        private BatchTask(List<PendingEmbedding> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                runBatch(batch);
+            } finally {
+                inferenceSlots.release();
+            }
+        }
+    }
+
+    private static final class PendingEmbedding {
+        // Queries before segments, each in arrival order
+        private static final Comparator<PendingEmbedding> ORDER = Comparator
+                .comparing((PendingEmbedding item) -> !item.query)
+                .thenComparingLong(item -> item.sequence);
+
+        private final TextSegment segment;
+        private final boolean query;
+        private final long sequence;
+        private final CompletableFuture<Embedding> future = new CompletableFuture<>();
+
+        private PendingEmbedding(TextSegment segment, boolean query, long sequence) {
+            this.segment = segment;
+            this.query = query;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.edun7.ragchatbot.service.embedding;
+
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import dev.langchain4j.data.embedding.Embedding;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of query text to query embedding.
+ * <p>
+ * Capacity is expressed in bytes so the bound holds regardless of query length. Keys are
+ * normalized (trimmed, whitespace collapsed, lower-cased) so trivial variants of a question
+ * share one entry; the normalized text is also what gets embedded, which is equivalent for
+ * the uncased BGE tokenizer. Concurrent misses on the same key may both run the loader,
+ * which keeps inference out of the lock.
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Rough per-entry overhead of the map node, key string and Embedding wrapper
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Embedding> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long currentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryEmbeddingCache(EmbeddingConfig config) {
+        this.enabled = config.isQueryCacheEnabled() && config.getQueryCacheMaxBytes() > 0;
+        this.maxBytes = config.getQueryCacheMaxBytes();
+        log.info("Query embedding cache {} with capacity {} bytes", enabled ? "enabled" : "disabled", maxBytes);
+    }
+
+    /**
+     * Get the embedding of a query, computing it with the loader on a miss.
+     * The loader receives the normalized query text.
+     */
+    public Embedding get(String query, Function<String, Embedding> loader) {
+        String key = normalize(query);
+        if (!enabled) {
+            return loader.apply(key);
+        }
+
+        lock.lock();
+        try {
+            Embedding cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        Embedding embedding = loader.apply(key);
+        put(key, embedding);
+        return embedding;
+    }
+
+    /**
+     * Get the embeddings of several queries in order, computing all misses with one call to
+     * the loader. The loader receives the distinct normalized texts of the misses and returns
+     * their embeddings in the same order.
+     */
+    public List<Embedding> getAll(List<String> queries, Function<List<String>, List<Embedding>> loader) {
+        List<String> keys = new ArrayList<>(queries.size());
+        Map<String, Embedding> found = new HashMap<>();
+        lock.lock();
+        try {
+            for (String query : queries) {
+                String key = normalize(query);
+                keys.add(key);
+                Embedding cached = enabled ? entries.get(key) : null;
+                if (cached != null) {
+                    found.put(key, cached);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<String> missing = keys.stream().filter(key -> !found.containsKey(key)).distinct().toList();
+        if (enabled) {
+            hits.add(queries.size() - missing.size());
+            misses.add(missing.size());
+        }
+        if (!missing.isEmpty()) {
+            List<Embedding> loaded = loader.apply(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                found.put(missing.get(i), loaded.get(i));
+                if (enabled) {
+                    put(missing.get(i), loaded.get(i));
+                }
+            }
+        }
+
+        List<Embedding> embeddings = new ArrayList<>(keys.size());
+        keys.forEach(key -> embeddings.add(found.get(key)));
+        return embeddings;
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            currentBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long sizeInBytes() {
+        lock.lock();
+        try {
+            return currentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String normalize(String query) {
+        return WHITESPACE.matcher(query.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private void put(String key, Embedding embedding) {
+        long entryBytes = weigh(key, embedding);
+        if (entryBytes > maxBytes) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            Embedding previous = entries.put(key, embedding);
+            if (previous != null) {
+                currentBytes -= weigh(key, previous);
+            }
+            currentBytes += entryBytes;
+
+            Iterator<Map.Entry<String, Embedding>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Embedding> entry = eldest.next();
+                currentBytes -= weigh(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long weigh(String key, Embedding embedding) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 4L * embedding.dimensions();
+    }
+}
@@ -0,0 +1,141 @@
+package com.edun7.ragchatbot.service.ingestion;
+
+import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.IngestionStage;
+import com.edun7.ragchatbot.model.IngestionStatus;
+import com.edun7.ragchatbot.service.vectordb.IndexingProgressListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mutable progress of a single document moving through the ingestion pipeline.
+ * Updated by pipeline workers and read concurrently by the status endpoint.
+ */
+public class IngestionJob implements IndexingProgressListener {
+
+    private final String jobId;
+    private final DocumentInfo document;
+    private final Instant submittedAt = Instant.now();
+    private final Map<IngestionStage, Long> stageDurationsMillis = new EnumMap<>(IngestionStage.class);
+
+    private final AtomicInteger embeddedSegments = new AtomicInteger();
+    private final AtomicInteger indexedSegments = new AtomicInteger();
+    private volatile IngestionStage stage = IngestionStage.QUEUED;
+    private volatile long stageStartedNanos = System.nanoTime();
+    private volatile Instant updatedAt = submittedAt;
+    private volatile int extractedCharacters;
+    private volatile int totalSegments;
+    private volatile int reusedSegments;
+    private volatile int removedSegments;
+    private volatile String error;
+
+    IngestionJob(String jobId, DocumentInfo document) {
+        this.jobId = jobId;
+        this.document = document;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public DocumentInfo getDocument() {
+        return document;
+    }
+
+    public IngestionStage getStage() {
+        return stage;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Move the job to the next stage, unless it already completed or failed
+     */
+    synchronized void moveTo(IngestionStage next) {
+        if (stage.isTerminal()) {
+            return;
+        }
+        long now = System.nanoTime();
+        stageDurationsMillis.merge(stage, (now - stageStartedNanos) / 1_000_000, Long::sum);
+        stage = next;
+        stageStartedNanos = now;
+        updatedAt = Instant.now();
+    }
+
+    void extracted(int characters) {
+        extractedCharacters = characters;
+        updatedAt = Instant.now();
+    }
+
+    void split(int segments) {
+        totalSegments += segments;
+        updatedAt = Instant.now();
+    }
+
+    void reused(int segments) {
+        reusedSegments += segments;
+        updatedAt = Instant.now();
+    }
+
+    void removed(int segments) {
+        removedSegments += segments;
+        updatedAt = Instant.now();
+    }
+
+    synchronized void fail(Throwable cause) {
+        if (stage.isTerminal()) {
+            return;
+        }
+        error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        moveTo(IngestionStage.FAILED);
+    }
+
+    @Override
+    public void segmentsEmbedded(int count) {
+        if (embeddedSegments.addAndGet(count) >= totalSegments) {
+            synchronized (this) {
+                if (stage == IngestionStage.EMBEDDING) {
+                    moveTo(IngestionStage.INDEXING);
+                }
+            }
+        }
+        updatedAt = Instant.now();
+    }
+
+    @Override
+    public void segmentsIndexed(int count) {
+        indexedSegments.addAndGet(count);
+        updatedAt = Instant.now();
+    }
+
+    public synchronized IngestionStatus toStatus() {
+        return IngestionStatus.builder()
+                .jobId(jobId)
+                .documentId(document.getId())
+                .documentName(document.getName())
+                .stage(stage)
+                .extractedCharacters(extractedCharacters)
+                .totalSegments(totalSegments)
+                .reusedSegments(reusedSegments)
+                .removedSegments(removedSegments)
+                .embeddedSegments(embeddedSegments.get())
+                .indexedSegments(indexedSegments.get())
+                .stageDurationsMillis(new EnumMap<>(stageDurationsMillis))
+                .error(error)
+                .submittedAt(format(submittedAt))
+                .updatedAt(format(updatedAt))
+                .build();
+    }
+
+    private static String format(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,13 @@
+package com.edun7.ragchatbot.service.ingestion;
+
+/**
+ * Thrown when the ingestion pipeline is saturated and cannot accept another upload
+ */
+public class IngestionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IngestionRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,364 @@
+package com.edun7.ragchatbot.service.ingestion;
+
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.IngestionConfig;
+import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentUpload;
+import com.edun7.ragchatbot.model.IngestionStage;
+import com.edun7.ragchatbot.service.cache.SemanticAnswerCache;
+import com.edun7.ragchatbot.service.document.DocumentService;
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import com.edun7.ragchatbot.service.document.StreamingDocumentSplitter;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import com.edun7.ragchatbot.service.vectordb.VectorDbService;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs uploaded documents through a staged ingestion pipeline off the request thread.
+ * <p>
+ * Extract and split run on one pool, embed and index on another. Pages are split as they
+ * are extracted and segments reach the index stage in chunks, so a document is embedded
+ * while the rest of it is still being extracted. Each stage only admits as many documents
+ * as it has workers plus queue slots: a full extract stage rejects new uploads, and a full
+ * index stage blocks the extract workers until it catches up.
+ */
+@Slf4j
+@Service
+public class IngestionService {
+
+    private final DocumentService documentService;
+    private final VectorDbService vectorDbService;
+    private final SemanticAnswerCache answerCache;
+    private final IngestionConfig config;
+    private final RagMetrics metrics;
+
+    private final ExecutorService extractExecutor;
+    private final ExecutorService indexExecutor;
+    private final Semaphore extractSlots;
+    private final Semaphore indexSlots;
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    // Marks the end of a document's segments in its chunk queue
+    private static final List<TextSegment> END_OF_SEGMENTS = new ArrayList<>();
+
+    public IngestionService(DocumentService documentService, VectorDbService vectorDbService,
+                            SemanticAnswerCache answerCache, IngestionConfig config,
+                            ExecutorFactory executorFactory, RagMetrics metrics) {
+        this.documentService = documentService;
+        this.vectorDbService = vectorDbService;
+        this.answerCache = answerCache;
+        this.config = config;
+        this.metrics = metrics;
+        // PDF parsing is CPU-bound, indexing mostly waits on the embedding pool and Elasticsearch
+        this.extractExecutor = executorFactory.newCpuExecutor("ingest-extract-", config.getExtractThreads());
+        this.indexExecutor = executorFactory.newBlockingExecutor("ingest-index-",
+                config.getIndexThreads(), config.getIndexQueueCapacity());
+        this.extractSlots = new Semaphore(config.getExtractThreads() + config.getExtractQueueCapacity());
+        this.indexSlots = new Semaphore(config.getIndexThreads() + config.getIndexQueueCapacity());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractExecutor.shutdownNow();
+        indexExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue an uploaded document for ingestion. The job id is the document id. A new revision
+     * only replaces the stored file once no earlier revision of the document is in flight.
+     *
+     * @throws IngestionRejectedException if the pipeline has no room for another document
+     * @throws IOException if the file of a new revision could not be stored
+     */
+    public IngestionJob submit(DocumentUpload upload) throws IOException {
+        DocumentInfo document = upload.getDocument();
+        pruneFinishedJobs();
+
+        if (!extractSlots.tryAcquire()) {
+            throw new IngestionRejectedException("Ingestion queue is full, please retry later");
+        }
+
+        // A document only has one job in flight, a new revision waits for the previous one
+        IngestionJob job = new IngestionJob(document.getId(), document);
+        if (jobs.merge(job.getJobId(), job, (previous, next) -> previous.getStage().isTerminal() ? next : previous) != job) {
+            extractSlots.release();
+            throw new IngestionRejectedException("Document " + document.getId() + " is still being ingested, please retry later");
+        }
+        try {
+            if (upload.isRevision()) {
+                documentService.storeRevision(upload);
+            }
+            extractExecutor.execute(() -> {
+                try {
+                    runExtractStage(job);
+                } finally {
+                    extractSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            extractSlots.release();
+            jobs.remove(job.getJobId(), job);
+            throw new IngestionRejectedException("Ingestion pipeline is shutting down");
+        } catch (IOException e) {
+            extractSlots.release();
+            jobs.remove(job.getJobId(), job);
+            throw e;
+        }
+
+        log.info("Queued document {} for ingestion", document.getId());
+        return job;
+    }
+
+    /**
+     * Get the current job of a document, if it is still retained
+     */
+    public Optional<IngestionJob> getJob(String documentId) {
+        return Optional.ofNullable(jobs.get(documentId));
+    }
+
+    private void runExtractStage(IngestionJob job) {
+        String documentId = job.getDocument().getId();
+        IndexFeed feed = null;
+        try {
+            File documentFile = documentService.getDocumentById(documentId);
+            if (documentFile == null || !documentFile.exists()) {
+                throw new IOException("Document not found: " + documentId);
+            }
+
+            // Segments already indexed for an earlier revision are kept rather than embedded again
+            job.moveTo(IngestionStage.EXTRACTING);
+            feed = new IndexFeed(job, vectorDbService.findSegmentHashes(documentId));
+
+            // Split pages as they are extracted and hand segments on in chunks, so embedding
+            // overlaps with extracting the rest of the document. Split time excludes the time
+            // spent handing segments on, which includes waiting for the index stage.
+            IndexFeed segments = feed;
+            long[] splitNanos = {0, 0};
+            StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(config.getSegmentSize(),
+                    config.getSegmentOverlap(), Metadata.from(SegmentMetadata.DOCUMENT_ID, documentId), segment -> {
+                        long start = System.nanoTime();
+                        segments.add(segment);
+                        splitNanos[1] += System.nanoTime() - start;
+                    });
+            int[] characters = {0};
+            documentService.extractPages(documentFile, (pageNumber, text) -> {
+                characters[0] += text.length();
+                job.extracted(characters[0]);
+                long start = System.nanoTime();
+                splitter.accept(pageNumber, text);
+                splitNanos[0] += System.nanoTime() - start;
+            });
+            long start = System.nanoTime();
+            splitter.finish();
+            splitNanos[0] += System.nanoTime() - start;
+            metrics.record(RagMetrics.SPLIT, splitNanos[0] - splitNanos[1]);
+            log.info("Extracted {} characters from document {} into {} segments",
+                    characters[0], documentId, splitter.getSegmentCount());
+
+            job.moveTo(IngestionStage.EMBEDDING);
+            feed.finish();
+        } catch (Exception e) {
+            Throwable cause = e instanceof FeedInterruptedException ? e.getCause() : e;
+            if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else {
+                log.error("Failed to extract document {}", documentId, cause);
+            }
+            job.fail(cause);
+            if (feed != null) {
+                feed.abort();
+            }
+        }
+    }
+
+    private void runIndexStage(IngestionJob job, IndexFeed feed) {
+        String documentId = job.getDocument().getId();
+        try {
+            for (List<TextSegment> chunk = feed.chunks.take(); chunk != END_OF_SEGMENTS; chunk = feed.chunks.take()) {
+                List<TextSegment> batch = chunk;
+                metrics.observe(RagMetrics.INDEX, () -> vectorDbService.addSegments(batch, job));
+            }
+            if (job.getStage() != IngestionStage.FAILED) {
+                removeStaleSegments(job, feed.stale);
+                complete(job);
+                log.info("Document {} indexed successfully", documentId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail(e);
+        } catch (Exception e) {
+            log.error("Failed to index document {}", documentId, e);
+            job.fail(e);
+        } finally {
+            // Even a partially indexed document changes what retrieval returns
+            answerCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Delete the segments of an earlier revision that the new one no longer contains, once
+     * the new segments are searchable
+     */
+    private void removeStaleSegments(IngestionJob job, Set<String> stale) {
+        if (!stale.isEmpty()) {
+            vectorDbService.deleteSegments(job.getDocument().getId(), stale);
+            job.removed(stale.size());
+        }
+    }
+
+    /**
+     * Record the indexed content with the document before reporting the job complete, so a
+     * document whose ingestion failed or was lost is not skipped as a duplicate when uploaded again
+     */
+    private void complete(IngestionJob job) {
+        DocumentInfo document = job.getDocument();
+        documentService.recordIndexedContent(document.getId(), document.getContentHash());
+        job.moveTo(IngestionStage.COMPLETED);
+    }
+
+    /**
+     * Passes the segments of one document to its index-stage task in chunks. The task is
+     * started, holding an index slot, once the first chunk is ready; waiting for a slot or for
+     * room in the chunk queue pauses extraction.
+     * <p>
+     * Segments are identified by the hash of their page and text. Segments already stored for
+     * the document and repeats within it are not passed on, and stored segments the document no
+     * longer contains are collected for removal. A reused segment keeps the metadata it is
+     * stored with: its page is still right, being part of the hash, but its ordinal may be
+     * that of an earlier revision.
+     */
+    private final class IndexFeed {
+
+        private final IngestionJob job;
+        private final Set<String> existing;
+        private final Set<String> seen = new HashSet<>();
+        private final BlockingQueue<List<TextSegment>> chunks =
+                new ArrayBlockingQueue<>(Math.max(1, config.getIndexChunkQueueCapacity()));
+        private List<TextSegment> chunk = new ArrayList<>();
+        private Set<String> stale = Set.of();
+        private boolean started;
+        // Set once the index task returns, after which nothing takes from the chunk queue
+        private volatile boolean indexExited;
+
+        IndexFeed(IngestionJob job, Set<String> existing) {
+            this.job = job;
+            this.existing = existing;
+        }
+
+        void add(TextSegment segment) {
+            String hash = SegmentMetadata.hash(segment);
+            if (!seen.add(hash)) {
+                return;
+            }
+            if (existing.contains(hash)) {
+                job.reused(1);
+                return;
+            }
+            segment.metadata().add(SegmentMetadata.SEGMENT_HASH, hash);
+            chunk.add(segment);
+            job.split(1);
+            if (chunk.size() >= Math.max(1, config.getIndexChunkSize())) {
+                send(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+
+        /**
+         * Send the last chunk and let the index task complete the job
+         */
+        void finish() {
+            if (!chunk.isEmpty()) {
+                send(chunk);
+            }
+            stale = new HashSet<>(existing);
+            stale.removeAll(seen);
+            if (started) {
+                send(END_OF_SEGMENTS);
+            } else {
+                // Nothing new to embed
+                removeStaleSegments(job, stale);
+                if (!stale.isEmpty()) {
+                    answerCache.invalidateAll();
+                }
+                complete(job);
+            }
+        }
+
+        /**
+         * Stop the index task after the chunks it already has
+         */
+        void abort() {
+            if (started && !chunks.offer(END_OF_SEGMENTS)) {
+                chunks.clear();
+                chunks.offer(END_OF_SEGMENTS);
+            }
+        }
+
+        private void send(List<TextSegment> next) {
+            try {
+                if (!started) {
+                    start();
+                }
+                while (!chunks.offer(next, 100, TimeUnit.MILLISECONDS)) {
+                    if (indexExited || job.getStage() == IngestionStage.FAILED) {
+                        throw new IllegalStateException("Indexing of document " + job.getJobId() + " failed");
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new FeedInterruptedException(e);
+            }
+        }
+
+        private void start() throws InterruptedException {
+            indexSlots.acquire();
+            try {
+                indexExecutor.execute(() -> {
+                    try {
+                        runIndexStage(job, IndexFeed.this);
+                    } finally {
+                        indexExited = true;
+                        indexSlots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                indexSlots.release();
+                throw e;
+            }
+            started = true;
+        }
+    }
+
+    private static final class FeedInterruptedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FeedInterruptedException(InterruptedException cause) {
+            super(cause);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        Instant cutoff = Instant.now().minus(config.getJobRetention());
+        jobs.values().removeIf(job -> job.getStage().isTerminal() && job.getUpdatedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,204 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.config.ContextConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assembles the context of a prompt from retrieved chunks within a token budget.
+ * <p>
+ * Chunks are taken in the order given, most relevant first, until the budget is spent.
+ * A chunk whose word shingles mostly appear in an already included chunk is skipped, so
+ * overlapping segments and repeated boilerplate do not use up the budget twice. The first
+ * chunk that does not fit is cut at its last paragraph or sentence boundary that fits, and
+ * nothing after it is included.
+ */
+@Slf4j
+@Component
+public class ContextBuilder {
+
+    private static final String CHUNK_SEPARATOR = "\n\n";
+
+    private static final Pattern BOUNDARY = Pattern.compile("\\n\\s*\\n|(?<=[.!?])\\s+");
+    private static final Pattern WORD = Pattern.compile("\\w+");
+    private static final int SHINGLE_SIZE = 3;
+
+    private final ContextConfig config;
+    private final TokenCounter tokenCounter;
+    private final int separatorTokens;
+
+    public ContextBuilder(ContextConfig config) {
+        this(config, createTokenCounter(config));
+    }
+
+    ContextBuilder(ContextConfig config, TokenCounter tokenCounter) {
+        this.config = config;
+        this.tokenCounter = tokenCounter;
+        this.separatorTokens = tokenCounter.count(CHUNK_SEPARATOR);
+    }
+
+    private static TokenCounter createTokenCounter(ContextConfig config) {
+        if (config.getTokenizerPath() == null || config.getTokenizerPath().isBlank()) {
+            log.info("No tokenizer configured, estimating prompt token counts");
+            return TokenCounter.estimating();
+        }
+        try {
+            TokenCounter counter = new HuggingFaceTokenCounter(Path.of(config.getTokenizerPath()));
+            log.info("Counting prompt tokens with tokenizer {}", config.getTokenizerPath());
+            return counter;
+        } catch (Exception | LinkageError e) {
+            // LinkageError: the native tokenizer library is missing or does not load on this platform
+            log.warn("Failed to load tokenizer {}, estimating prompt token counts", config.getTokenizerPath(), e);
+            return TokenCounter.estimating();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (tokenCounter instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close tokenizer", e);
+            }
+        }
+    }
+
+    public int countTokens(String text) {
+        return tokenCounter.count(text);
+    }
+
+    /**
+     * Build the context from chunks ordered by relevance, leaving {@code reservedTokens} of the
+     * prompt budget for the instructions and the query
+     */
+    public PromptContext build(List<String> chunks, int reservedTokens) {
+        int budget = Math.max(0, config.getMaxPromptTokens() - reservedTokens);
+        List<String> included = new ArrayList<>();
+        List<Set<Long>> includedShingles = new ArrayList<>();
+        int used = 0;
+        int duplicates = 0;
+        boolean trimmed = false;
+
+        for (String chunk : chunks) {
+            String text = chunk.trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            Set<Long> shingles = shingles(text);
+            if (isDuplicate(shingles, includedShingles)) {
+                duplicates++;
+                continue;
+            }
+            int available = budget - used - (included.isEmpty() ? 0 : separatorTokens);
+            int tokens = tokenCounter.count(text);
+            if (tokens > available) {
+                String head = trimToFit(text, available);
+                if (head != null) {
+                    included.add(head);
+                    used += tokenCounter.count(head) + (included.size() > 1 ? separatorTokens : 0);
+                }
+                trimmed = true;
+                break;
+            }
+            included.add(text);
+            includedShingles.add(shingles);
+            used += tokens + (included.size() > 1 ? separatorTokens : 0);
+        }
+
+        String context = String.join(CHUNK_SEPARATOR, included);
+        return PromptContext.builder()
+                .text(context)
+                .tokens(context.isEmpty() ? 0 : tokenCounter.count(context))
+                .budgetTokens(budget)
+                .offeredChunks(chunks.size())
+                .includedChunks(included.size())
+                .duplicateChunks(duplicates)
+                .trimmed(trimmed)
+                .build();
+    }
+
+    /**
+     * The longest head of the chunk that ends on a paragraph or sentence boundary and fits,
+     * or null if it would be shorter than {@code minChunkTokens}
+     */
+    private String trimToFit(String text, int available) {
+        if (available < config.getMinChunkTokens()) {
+            return null;
+        }
+        List<Integer> ends = new ArrayList<>();
+        Matcher matcher = BOUNDARY.matcher(text);
+        while (matcher.find()) {
+            if (matcher.start() > 0) {
+                ends.add(matcher.start());
+            }
+        }
+        // Binary search over the boundaries, heads only grow with the end offset
+        String best = null;
+        int low = 0;
+        int high = ends.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            String head = text.substring(0, ends.get(mid));
+            if (tokenCounter.count(head) <= available) {
+                best = head;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (best == null || tokenCounter.count(best) < config.getMinChunkTokens()) {
+            return null;
+        }
+        return best;
+    }
+
+    private boolean isDuplicate(Set<Long> shingles, List<Set<Long>> includedShingles) {
+        if (shingles.isEmpty()) {
+            return false;
+        }
+        for (Set<Long> other : includedShingles) {
+            int shared = 0;
+            for (Long shingle : shingles) {
+                if (other.contains(shingle)) {
+                    shared++;
+                }
+            }
+            if (shared >= config.getDuplicateThreshold() * shingles.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hashes of every run of {@link #SHINGLE_SIZE} consecutive lower-cased words
+     */
+    private static Set<Long> shingles(String text) {
+        List<String> words = new ArrayList<>();
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            words.add(matcher.group());
+        }
+        Set<Long> shingles = new HashSet<>();
+        int runs = Math.max(1, words.size() - SHINGLE_SIZE + 1);
+        for (int i = 0; i < runs && i < words.size(); i++) {
+            long hash = 1;
+            for (int j = i; j < Math.min(i + SHINGLE_SIZE, words.size()); j++) {
+                hash = 31 * hash + words.get(j).hashCode();
+            }
+            shingles.add(hash);
+        }
+        return shingles;
+    }
+}
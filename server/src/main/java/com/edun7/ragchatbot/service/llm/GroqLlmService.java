@@ -1,104 +1,246 @@
 package com.edun7.ragchatbot.service.llm;
 
 import com.edun7.ragchatbot.config.GroqConfig;
+import com.edun7.ragchatbot.model.ChatMessage;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.common.KeyValues;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
 
+/**
+ * Answers through one OpenAI-compatible chat completions endpoint, Groq by default.
+ * {@link RoutingLlmService} creates one per configured backend.
+ */
 @Slf4j
-@Service
 public class GroqLlmService implements LlmService {
     
-    private final GroqConfig config;
-    private final RestTemplate restTemplate;
+    private static final String INSTRUCTIONS_BEFORE_CONTEXT =
+            "You are an educational assistant that answers questions based on the provided context information. " +
+            "Given the context information and no prior knowledge, answer the query.\n\n" +
+            "Context:\n";
+    
+    private static final String INSTRUCTIONS_AFTER_CONTEXT = "\n\n" +
+            "Follow these rules:\n" +
+            "1. If the answer is not in the context, just say that you don't know.\n" +
+            "2. Avoid statements like 'Based on the context...' or 'The provided information...'\n" +
+            "3. Give direct, factual answers based only on the context provided.\n" +
+            "4. Do not make up information that is not in the context.\n" +
+            "5. Answer the question as concisely as possible while providing the necessary details.";
+    
+    private static final String SUMMARY_HEADING = "\n\nSummary of the earlier conversation:\n";
+    
+    // Role markers and delimiters the chat template adds around each message
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    
+    private final String model;
+    private final ContextBuilder contextBuilder;
+    private final LlmHttpClient httpClient;
     private final Gson gson;
+    private final int instructionTokens;
+    private final RagMetrics metrics;
     
-    public GroqLlmService(GroqConfig config) {
-        this.config = config;
-        this.restTemplate = new RestTemplate();
+    public GroqLlmService(String name, String baseUrl, String apiKey, String model, GroqConfig settings,
+                          ContextBuilder contextBuilder, RagMetrics metrics) {
+        this.model = model;
+        this.contextBuilder = contextBuilder;
+        this.metrics = metrics;
+        this.instructionTokens = contextBuilder.countTokens(INSTRUCTIONS_BEFORE_CONTEXT + INSTRUCTIONS_AFTER_CONTEXT);
+        this.httpClient = new LlmHttpClient(name, baseUrl, apiKey, settings, metrics);
         this.gson = new Gson();
     }
     
     @Override
-    public String generateResponse(List<String> relevantChunks, String userQuery) {
+    public String generateResponse(List<String> relevantChunks, String userQuery, ConversationHistory history) {
+        return metrics.observe(RagMetrics.LLM, tags("generate"),
+                () -> complete(buildRequestBody(relevantChunks, userQuery, history)));
+    }
+    
+    @Override
+    public String complete(String instructions, String input) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", model);
+        requestBody.addProperty("temperature", 0);
+        JsonArray messages = new JsonArray();
+        messages.add(message("system", instructions));
+        messages.add(message("user", input));
+        requestBody.add("messages", messages);
+        return metrics.observe(RagMetrics.LLM, tags("complete"), () -> complete(requestBody));
+    }
+    
+    private String complete(JsonObject requestBody) {
         try {
-            // Create system prompt with relevant context
-            String context = relevantChunks.stream()
-                    .collect(Collectors.joining("\n\n"));
-            
-            String systemPrompt = "You are an educational assistant that answers questions based on the provided context information. " +
-                    "Given the context information and no prior knowledge, answer the query.\n\n" +
-                    "Context:\n" + context + "\n\n" +
-                    "Follow these rules:\n" +
-                    "1. If the answer is not in the context, just say that you don't know.\n" +
-                    "2. Avoid statements like 'Based on the context...' or 'The provided information...'\n" +
-                    "3. Give direct, factual answers based only on the context provided.\n" +
-                    "4. Do not make up information that is not in the context.\n" +
-                    "5. Answer the question as concisely as possible while providing the necessary details.";
-            
-            // Prepare request headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + config.getApiKey());
-            
-            // Prepare request body
-            JsonObject requestBody = new JsonObject();
-            requestBody.addProperty("model", config.getModel());
-            
-            JsonArray messages = new JsonArray();
-            
-            // Add system message
-            JsonObject systemMessage = new JsonObject();
-            systemMessage.addProperty("role", "system");
-            systemMessage.addProperty("content", systemPrompt);
-            messages.add(systemMessage);
-            
-            // Add user message
-            JsonObject userMessage = new JsonObject();
-            userMessage.addProperty("role", "user");
-            userMessage.addProperty("content", userQuery);
-            messages.add(userMessage);
-            
-            requestBody.add("messages", messages);
-            
-            // Send request to Groq API
-            HttpEntity<String> request = new HttpEntity<>(requestBody.toString(), headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    "https://api.groq.com/openai/v1/chat/completions", 
-                    request, 
-                    String.class);
+            // Send request to the API
+            String response = httpClient.complete(requestBody.toString());
             
             // Parse response
-            JsonObject responseJson = gson.fromJson(response.getBody(), JsonObject.class);
+            JsonObject responseJson = gson.fromJson(response, JsonObject.class);
             JsonArray choices = responseJson.getAsJsonArray("choices");
             if (choices != null && choices.size() > 0) {
                 JsonObject choice = choices.get(0).getAsJsonObject();
                 JsonObject message = choice.getAsJsonObject("message");
                 if (message != null && message.has("content")) {
-                    return message.get("content").getAsString();
+                    String content = message.get("content").getAsString();
+                    recordUsage(responseJson, content);
+                    return content;
                 }
             }
             
-            return "Failed to get a response from the LLM.";
+            throw new LlmException("Failed to get a response from the LLM.");
+            
+        } catch (LlmException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error generating response from {}", httpClient.getName(), e);
+            throw new LlmException("An error occurred while generating a response: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void streamResponse(List<String> relevantChunks, String userQuery, ConversationHistory history,
+                               StreamingResponseHandler<String> handler) {
+        metrics.observe(RagMetrics.LLM, tags("stream"), () -> stream(relevantChunks, userQuery, history, handler));
+    }
+    
+    private void stream(List<String> relevantChunks, String userQuery, ConversationHistory history,
+                        StreamingResponseHandler<String> handler) {
+        long start = System.nanoTime();
+        try {
+            // Ask for server-sent events instead of a single completion
+            JsonObject requestBody = buildRequestBody(relevantChunks, userQuery, history);
+            requestBody.addProperty("stream", true);
+            
+            StringBuilder answer = new StringBuilder();
+            httpClient.stream(requestBody.toString(), line -> {
+                if (!line.startsWith("data:")) {
+                    return true; // Blank separators, comments and other SSE fields
+                }
+                String data = line.substring("data:".length()).trim();
+                if ("[DONE]".equals(data)) {
+                    return false;
+                }
+                String token = parseDelta(data);
+                if (token != null && !token.isEmpty()) {
+                    if (answer.length() == 0) {
+                        metrics.record(RagMetrics.LLM_FIRST_TOKEN, System.nanoTime() - start, "backend", getName());
+                    }
+                    answer.append(token);
+                    handler.onNext(token);
+                }
+                return true;
+            });
+            
+            metrics.responseTokens(contextBuilder.countTokens(answer.toString()));
+            handler.onComplete(Response.from(answer.toString()));
             
+        } catch (LlmException e) {
+            log.error("Error streaming response from {}: {}", httpClient.getName(), e.getMessage());
+            handler.onError(e);
+        } catch (CancellationException e) {
+            // The handler stopped the stream, e.g. because another request won a hedge
+            handler.onError(e);
         } catch (Exception e) {
-            log.error("Error generating response from Groq API", e);
-            return "An error occurred while generating a response: " + e.getMessage();
+            log.error("Error streaming response from {}", httpClient.getName(), e);
+            handler.onError(new LlmException("An error occurred while generating a response: " + e.getMessage(), e));
         }
     }
     
+    public String getName() {
+        return httpClient.getName();
+    }
+    
     @Override
     public String getModelName() {
-        return config.getModel();
+        return model;
+    }
+    
+    JsonObject buildRequestBody(List<String> relevantChunks, String userQuery, ConversationHistory history) {
+        // Fit the relevant context into what the prompt budget leaves after instructions, history and query
+        String summary = history.getSummary() == null || history.getSummary().isBlank()
+                ? "" : SUMMARY_HEADING + history.getSummary();
+        List<ChatMessage> earlierMessages = history.getMessages() == null ? List.of() : history.getMessages();
+        int historyTokens = contextBuilder.countTokens(summary);
+        for (ChatMessage message : earlierMessages) {
+            historyTokens += contextBuilder.countTokens(message.getContent()) + MESSAGE_OVERHEAD_TOKENS;
+        }
+        int queryTokens = contextBuilder.countTokens(userQuery);
+        int reservedTokens = instructionTokens + historyTokens + queryTokens + 2 * MESSAGE_OVERHEAD_TOKENS;
+        PromptContext context = metrics.observe(RagMetrics.PROMPT, () -> contextBuilder.build(relevantChunks, reservedTokens));
+        metrics.promptTokens(reservedTokens + context.getTokens());
+        log.info("Prompt has ~{} tokens: {} context tokens from {} of {} chunks ({} near-duplicates dropped{}), " +
+                        "{} history tokens, budget {}",
+                reservedTokens + context.getTokens(), context.getTokens(), context.getIncludedChunks(),
+                context.getOfferedChunks(), context.getDuplicateChunks(), context.isTrimmed() ? ", trimmed" : "",
+                historyTokens, context.getBudgetTokens());
+        
+        String systemPrompt = INSTRUCTIONS_BEFORE_CONTEXT + context.getText() + INSTRUCTIONS_AFTER_CONTEXT + summary;
+                
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", model);
+        
+        JsonArray messages = new JsonArray();
+        
+        // Add system message
+        messages.add(message("system", systemPrompt));
+        
+        // Add the recent turns of the conversation
+        for (ChatMessage message : earlierMessages) {
+            messages.add(message(message.getRole(), message.getContent()));
+        }
+        
+        // Add user message
+        messages.add(message("user", userQuery));
+        
+        requestBody.add("messages", messages);
+        return requestBody;
+    }
+    
+    private static JsonObject message(String role, String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", role);
+        message.addProperty("content", content);
+        return message;
+    }
+    
+    /**
+     * Log the token counts the API reports for a completion and record the response tokens,
+     * counted locally if the API does not report them
+     */
+    private void recordUsage(JsonObject responseJson, String content) {
+        JsonObject usage = responseJson.getAsJsonObject("usage");
+        if (usage != null && usage.has("prompt_tokens")) {
+            log.info("{} reported {} prompt tokens and {} completion tokens", httpClient.getName(),
+                    usage.get("prompt_tokens").getAsInt(),
+                    usage.has("completion_tokens") ? usage.get("completion_tokens").getAsInt() : 0);
+        }
+        metrics.responseTokens(usage != null && usage.has("completion_tokens")
+                ? usage.get("completion_tokens").getAsInt() : contextBuilder.countTokens(content));
+    }
+    
+    private KeyValues tags(String operation) {
+        return KeyValues.of("backend", getName(), "operation", operation);
+    }
+    
+    /**
+     * Extract the content delta from one streamed chat completion chunk
+     */
+    private String parseDelta(String data) {
+        JsonObject chunk = gson.fromJson(data, JsonObject.class);
+        JsonArray choices = chunk.getAsJsonArray("choices");
+        if (choices == null || choices.size() == 0) {
+            return null;
+        }
+        JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+        if (delta == null || !delta.has("content") || delta.get("content").isJsonNull()) {
+            return null;
+        }
+        return delta.get("content").getAsString();
     }
 }
@@ -0,0 +1,30 @@
+package com.edun7.ragchatbot.service.llm;
+
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Counts tokens exactly with the LLM's own tokenizer, loaded from its tokenizer.json
+ */
+public class HuggingFaceTokenCounter implements TokenCounter, AutoCloseable {
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    public HuggingFaceTokenCounter(Path tokenizerJson) throws IOException {
+        this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerJson,
+                Map.of("addSpecialTokens", "false", "truncation", "false", "padding", "false"));
+    }
+
+    @Override
+    public int count(String text) {
+        return tokenizer.encode(text).getIds().length;
+    }
+
+    @Override
+    public void close() {
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.edun7.ragchatbot.service.llm;
+
+import java.util.Arrays;
+
+/**
+ * One endpoint behind {@link RoutingLlmService} with its recent behaviour: moving averages of
+ * latency and error rate, a window of recent latencies for the hedge quantile, and a cooldown
+ * after failures. Completions and time to first streamed token are tracked separately.
+ */
+final class LlmBackend {
+
+    // Hedge quantiles are only trusted once this many latencies were seen
+    private static final int MIN_QUANTILE_SAMPLES = 20;
+    // How much a backend that fails every call is penalized over its latency
+    private static final double ERROR_PENALTY = 4;
+
+    private final GroqLlmService service;
+    private final double alpha;
+    private final LatencyStats completion;
+    private final LatencyStats firstToken;
+    private double errorRate;
+    private volatile long cooldownUntilNanos = System.nanoTime();
+
+    LlmBackend(GroqLlmService service, double alpha, int latencySamples) {
+        this.service = service;
+        this.alpha = alpha;
+        this.completion = new LatencyStats(latencySamples);
+        this.firstToken = new LatencyStats(latencySamples);
+    }
+
+    GroqLlmService service() {
+        return service;
+    }
+
+    String name() {
+        return service.getName();
+    }
+
+    synchronized void recordSuccess(boolean streaming, long latencyNanos) {
+        (streaming ? firstToken : completion).record(latencyNanos, alpha);
+        errorRate *= 1 - alpha;
+    }
+
+    synchronized void recordFailure(long cooldownNanos) {
+        errorRate = errorRate * (1 - alpha) + alpha;
+        cooldownUntilNanos = System.nanoTime() + cooldownNanos;
+    }
+
+    boolean isCoolingDown(long nowNanos) {
+        return cooldownUntilNanos - nowNanos > 0;
+    }
+
+    /**
+     * Lower is better. Backends without samples score zero so that they get tried, unless they
+     * have failed: one that never succeeded ranks behind every backend that did.
+     */
+    synchronized double score(boolean streaming) {
+        double latency = (streaming ? firstToken : completion).ewmaNanos;
+        if (Double.isNaN(latency)) {
+            return errorRate > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+        return latency * (1 + ERROR_PENALTY * errorRate);
+    }
+
+    /**
+     * Latency quantile in nanoseconds, or -1 while there are too few samples
+     */
+    synchronized long latencyQuantile(boolean streaming, double quantile) {
+        return (streaming ? firstToken : completion).quantile(quantile);
+    }
+
+    synchronized double errorRate() {
+        return errorRate;
+    }
+
+    private static final class LatencyStats {
+        private final long[] samples;
+        private int next;
+        private int count;
+        private double ewmaNanos = Double.NaN;
+
+        private LatencyStats(int size) {
+            this.samples = new long[Math.max(MIN_QUANTILE_SAMPLES, size)];
+        }
+
+        private void record(long nanos, double alpha) {
+            ewmaNanos = Double.isNaN(ewmaNanos) ? nanos : ewmaNanos + alpha * (nanos - ewmaNanos);
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        private long quantile(double quantile) {
+            if (count < MIN_QUANTILE_SAMPLES) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+        }
+    }
+}
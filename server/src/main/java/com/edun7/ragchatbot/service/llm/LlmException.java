@@ -0,0 +1,17 @@
+package com.edun7.ragchatbot.service.llm;
+
+/**
+ * Thrown when the LLM could not produce a response
+ */
+public class LlmException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LlmException(String message) {
+        super(message);
+    }
+
+    public LlmException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
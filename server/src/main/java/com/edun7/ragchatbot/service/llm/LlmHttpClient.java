@@ -0,0 +1,251 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.config.GroqConfig;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * HTTP client for an OpenAI-compatible chat completions endpoint.
+ * <p>
+ * Connections are pooled and kept alive by the JDK client, which negotiates HTTP/2 when the
+ * server supports it. Every call first takes a slot from a bulkhead that caps in-flight
+ * requests, then retries 429/5xx responses and I/O failures with jittered exponential
+ * backoff (honoring {@code Retry-After}) until the per-call deadline runs out. Time spent
+ * waiting for a slot and time spent upstream are recorded as separate timers, tagged with
+ * the backend like the retry, rejection and in-flight meters.
+ */
+@Slf4j
+public class LlmHttpClient {
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 500, 502, 503, 504);
+    private static final int MAX_ERROR_BODY_CHARS = 500;
+
+    private final String name;
+    private final URI chatCompletionsUri;
+    private final String apiKey;
+    private final GroqConfig settings;
+    private final HttpClient httpClient;
+    private final Semaphore permits;
+
+    private final Timer queueWait;
+    private final Timer upstream;
+    private final Counter retries;
+    private final Counter rejections;
+
+    public LlmHttpClient(String name, String baseUrl, String apiKey, GroqConfig settings, RagMetrics metrics) {
+        this.name = name;
+        this.chatCompletionsUri = URI.create(baseUrl.replaceAll("/+$", "") + "/chat/completions");
+        this.apiKey = apiKey;
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.getConnectTimeout())
+                .build();
+        this.permits = new Semaphore(settings.getMaxConcurrentRequests(), true);
+
+        this.queueWait = metrics.timer(RagMetrics.LLM_QUEUE_WAIT, "Time LLM calls waited for a request slot", "backend", name);
+        this.upstream = metrics.timer(RagMetrics.LLM_UPSTREAM,
+                "Time LLM calls spent upstream, over all attempts", "backend", name);
+        this.retries = metrics.counter(RagMetrics.LLM_RETRIES, "LLM requests retried after a failure", "backend", name);
+        this.rejections = metrics.counter(RagMetrics.LLM_REJECTIONS,
+                "LLM calls rejected because no request slot freed up", "backend", name);
+        metrics.gauge(RagMetrics.LLM_IN_FLIGHT, "LLM requests holding a slot",
+                () -> settings.getMaxConcurrentRequests() - permits.availablePermits(), "backend", name);
+    }
+
+    /**
+     * Send a chat completion request and return the response body
+     *
+     * @throws LlmException if no successful response arrived before the deadline
+     */
+    public String complete(String requestBody) {
+        return execute(requestBody, "application/json", HttpResponse.BodyHandlers.ofString(), HttpResponse::body);
+    }
+
+    /**
+     * Send a streaming chat completion request and feed the response lines to the consumer
+     * until it returns false or the stream ends. Retries only happen before the first line.
+     *
+     * @throws LlmException if no successful response arrived before the deadline
+     */
+    public void stream(String requestBody, Predicate<String> lineConsumer) {
+        execute(requestBody, "text/event-stream", HttpResponse.BodyHandlers.ofLines(), response -> {
+            try (Stream<String> lines = response.body()) {
+                Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext() && lineConsumer.test(iterator.next())) {
+                    // Consumer decides when to stop
+                }
+            }
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private <B, T> T execute(String requestBody, String accept, HttpResponse.BodyHandler<B> bodyHandler,
+                             Function<HttpResponse<B>, T> onSuccess) {
+        long callStart = System.nanoTime();
+        long deadline = callStart + settings.getCallDeadline().toNanos();
+
+        acquirePermit();
+        long upstreamStart = System.nanoTime();
+        queueWait.record(upstreamStart - callStart, TimeUnit.NANOSECONDS);
+        int attempt = 0;
+        try {
+            while (true) {
+                Duration timeout = Duration.ofNanos(Math.min(settings.getRequestTimeout().toNanos(),
+                        Math.max(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(1))));
+                HttpRequest request = HttpRequest.newBuilder(chatCompletionsUri)
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .header("Accept", accept)
+                        .header("Authorization", "Bearer " + apiKey)
+                        .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                        .build();
+
+                HttpResponse<B> response;
+                try {
+                    response = send(request, bodyHandler);
+                } catch (IOException e) {
+                    if (!backOff(attempt++, null, deadline)) {
+                        throw new LlmException(name + " request failed: " + e.getMessage(), e);
+                    }
+                    log.warn("{} request failed ({}), retrying", name, e.getMessage());
+                    continue;
+                }
+
+                int status = response.statusCode();
+                if (status / 100 == 2) {
+                    return onSuccess.apply(response);
+                }
+
+                String errorBody = describe(response.body());
+                if (!RETRYABLE_STATUS.contains(status)
+                        || !backOff(attempt++, retryAfter(response), deadline)) {
+                    throw new LlmException(name + " returned status " + status + ": " + errorBody);
+                }
+                log.warn("{} returned status {}, retrying", name, status);
+            }
+        } finally {
+            long upstreamNanos = System.nanoTime() - upstreamStart;
+            upstream.record(upstreamNanos, TimeUnit.NANOSECONDS);
+            permits.release();
+            log.debug("{} call waited {} ms for a slot, spent {} ms upstream over {} attempts", name,
+                    TimeUnit.NANOSECONDS.toMillis(upstreamStart - callStart),
+                    TimeUnit.NANOSECONDS.toMillis(upstreamNanos), attempt + 1);
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(settings.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                rejections.increment();
+                throw new LlmException("Too many concurrent requests to " + name + ", please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while waiting for " + name, e);
+        }
+    }
+
+    /**
+     * Send asynchronously and wait, so that interrupting the caller aborts the exchange
+     */
+    private <B> HttpResponse<B> send(HttpRequest request, HttpResponse.BodyHandler<B> bodyHandler) throws IOException {
+        CompletableFuture<HttpResponse<B>> future = httpClient.sendAsync(request, bodyHandler);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while calling " + name, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new LlmException(name + " request failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sleep before the next attempt. Returns false when no attempts or time are left.
+     */
+    private boolean backOff(int attempt, Duration retryAfter, long deadline) {
+        if (attempt >= settings.getMaxRetries()) {
+            return false;
+        }
+
+        // Full jitter over an exponentially growing window
+        long window = Math.min(settings.getMaxBackoff().toMillis(),
+                settings.getInitialBackoff().toMillis() << Math.min(attempt, 20));
+        long delayMillis = ThreadLocalRandom.current().nextLong(window + 1);
+        if (retryAfter != null) {
+            delayMillis = Math.max(delayMillis, retryAfter.toMillis());
+        }
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) >= deadline) {
+            return false;
+        }
+
+        retries.increment();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while retrying " + name, e);
+        }
+        return true;
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").map(value -> {
+            try {
+                return Duration.ofSeconds(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    Duration untilDate = Duration.between(ZonedDateTime.now(),
+                            ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                    return untilDate.isNegative() ? Duration.ZERO : untilDate;
+                } catch (DateTimeParseException ignored) {
+                    return null;
+                }
+            }
+        }).orElse(null);
+    }
+
+    private static String describe(Object body) {
+        String text;
+        if (body instanceof Stream) {
+            try (Stream<?> lines = (Stream<?>) body) {
+                text = lines.map(String::valueOf).collect(Collectors.joining("\n"));
+            }
+        } else {
+            text = String.valueOf(body);
+        }
+        return text.length() > MAX_ERROR_BODY_CHARS ? text.substring(0, MAX_ERROR_BODY_CHARS) + "..." : text;
+    }
+}
@@ -1,12 +1,50 @@
 package com.edun7.ragchatbot.service.llm;
 
+import com.edun7.ragchatbot.model.ConversationHistory;
+import dev.langchain4j.model.StreamingResponseHandler;
+
 import java.util.List;
 
 public interface LlmService {
     /**
-     * Generate a response from the LLM based on relevant document chunks and a user query
+     * Generate a response from the LLM based on relevant document chunks and a user query.
+     * Chunks are ordered by relevance, most relevant first; less relevant ones may be left out
+     * to keep the prompt within its token budget.
+     *
+     * @throws LlmException if the LLM could not produce a response
+     */
+    default String generateResponse(List<String> relevantChunks, String userQuery) {
+        return generateResponse(relevantChunks, userQuery, ConversationHistory.empty());
+    }
+    
+    /**
+     * Generate a response that continues a conversation
+     *
+     * @throws LlmException if the LLM could not produce a response
+     */
+    String generateResponse(List<String> relevantChunks, String userQuery, ConversationHistory history);
+    
+    /**
+     * Stream a response token by token to the handler. Blocks until the response is complete;
+     * failures are reported through {@link StreamingResponseHandler#onError} rather than thrown.
+     */
+    default void streamResponse(List<String> relevantChunks, String userQuery, StreamingResponseHandler<String> handler) {
+        streamResponse(relevantChunks, userQuery, ConversationHistory.empty(), handler);
+    }
+    
+    /**
+     * Stream a response that continues a conversation
+     */
+    void streamResponse(List<String> relevantChunks, String userQuery, ConversationHistory history,
+                        StreamingResponseHandler<String> handler);
+    
+    /**
+     * Run a single instruction over an input without retrieved context, e.g. to rewrite a
+     * question or summarize a conversation
+     *
+     * @throws LlmException if the LLM could not produce a response
      */
-    String generateResponse(List<String> relevantChunks, String userQuery);
+    String complete(String instructions, String input);
     
     /**
      * Get the name of the LLM model being used
@@ -0,0 +1,19 @@
+package com.edun7.ragchatbot.service.llm;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Context assembled for one prompt, with what it took to fit the token budget
+ */
+@Data
+@Builder
+public class PromptContext {
+    private String text;
+    private int tokens;
+    private int budgetTokens;
+    private int offeredChunks;
+    private int includedChunks;
+    private int duplicateChunks;
+    private boolean trimmed;
+}
@@ -0,0 +1,375 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.GroqConfig;
+import com.edun7.ragchatbot.config.LlmRoutingConfig;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads LLM calls over several OpenAI-compatible endpoints.
+ * <p>
+ * Each call goes to the better of two randomly picked backends that are not cooling down
+ * after a failure, scored by their moving average latency and error rate. If it fails the
+ * next best backend is tried, until all were tried. With hedging enabled, a call still
+ * running after the backend's {@code hedgeQuantile} latency is sent to a second backend as
+ * well; the first successful response wins and the other request is cancelled. Streamed
+ * responses are hedged and failed over on the time to their first token, and never once
+ * tokens reached the caller.
+ */
+@Slf4j
+@Service
+public class RoutingLlmService implements LlmService {
+
+    private final LlmRoutingConfig config;
+    private final List<LlmBackend> backends;
+    private final ExecutorService executor;
+    private final long cooldownNanos;
+    private final RagMetrics metrics;
+
+    public RoutingLlmService(LlmRoutingConfig config, GroqConfig groqConfig, ContextBuilder contextBuilder,
+                             ExecutorFactory executorFactory, RagMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        List<LlmRoutingConfig.Backend> definitions = config.getBackends();
+        if (definitions.isEmpty()) {
+            LlmRoutingConfig.Backend groq = new LlmRoutingConfig.Backend();
+            groq.setName("Groq API");
+            groq.setBaseUrl(groqConfig.getBaseUrl());
+            groq.setApiKey(groqConfig.getApiKey());
+            groq.setModel(groqConfig.getModel());
+            definitions = List.of(groq);
+        }
+        this.backends = new ArrayList<>();
+        for (LlmRoutingConfig.Backend definition : definitions) {
+            String name = definition.getName() != null ? definition.getName() : definition.getBaseUrl();
+            String model = definition.getModel() != null ? definition.getModel() : groqConfig.getModel();
+            GroqLlmService service = new GroqLlmService(name, definition.getBaseUrl(), definition.getApiKey(),
+                    model, groqConfig, contextBuilder, metrics);
+            backends.add(new LlmBackend(service, config.getEwmaAlpha(), config.getLatencySamples()));
+        }
+        this.executor = executorFactory.newBlockingExecutor("llm-call-", config.getThreads(), config.getQueueCapacity());
+        this.cooldownNanos = config.getFailureCooldown().toNanos();
+        log.info("Routing LLM calls over {}{}", backends.stream().map(LlmBackend::name).collect(Collectors.joining(", ")),
+                config.isHedgingEnabled() ? " with hedged requests" : "");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String generateResponse(List<String> relevantChunks, String userQuery, ConversationHistory history) {
+        return call(service -> service.generateResponse(relevantChunks, userQuery, history));
+    }
+
+    @Override
+    public String complete(String instructions, String input) {
+        return call(service -> service.complete(instructions, input));
+    }
+
+    @Override
+    public void streamResponse(List<String> relevantChunks, String userQuery, ConversationHistory history,
+                               StreamingResponseHandler<String> handler) {
+        new StreamRace(handler, rank(true), (service, attemptHandler) ->
+                service.streamResponse(relevantChunks, userQuery, history, attemptHandler)).run();
+    }
+
+    @Override
+    public String getModelName() {
+        return backends.stream()
+                .map(backend -> backend.service().getModelName())
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Backends in the order to try them: the better of two random healthy ones first, then the
+     * remaining healthy ones by score, then those cooling down
+     */
+    private List<LlmBackend> rank(boolean streaming) {
+        long now = System.nanoTime();
+        List<LlmBackend> healthy = new ArrayList<>();
+        List<LlmBackend> coolingDown = new ArrayList<>();
+        for (LlmBackend backend : backends) {
+            (backend.isCoolingDown(now) ? coolingDown : healthy).add(backend);
+        }
+        Map<LlmBackend, Double> scores = new HashMap<>();
+        healthy.forEach(backend -> scores.put(backend, backend.score(streaming)));
+        healthy.sort(Comparator.comparingDouble(scores::get));
+        if (healthy.size() > 2) {
+            // Two random choices spread load instead of sending everything to the fastest
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(healthy.size());
+            int second = random.nextInt(healthy.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            healthy.add(0, healthy.remove(Math.min(first, second)));
+        }
+        healthy.addAll(coolingDown);
+        return healthy;
+    }
+
+    private long hedgeDelayNanos(LlmBackend backend, boolean streaming) {
+        long quantile = backend.latencyQuantile(streaming, config.getHedgeQuantile());
+        return Math.max(config.getMinHedgeDelay().toNanos(), quantile);
+    }
+
+    /**
+     * Run a blocking call with failover and hedging
+     */
+    private String call(Function<LlmService, String> operation) {
+        Deque<LlmBackend> remaining = new ArrayDeque<>(rank(false));
+        CompletionService<String> completions = new ExecutorCompletionService<>(executor);
+        Map<Future<String>, LlmBackend> inFlight = new HashMap<>();
+        Map<Future<String>, Long> startTimes = new HashMap<>();
+        boolean hedged = false;
+        RuntimeException lastError = null;
+
+        try {
+            LlmBackend primary = remaining.poll();
+            submit(completions, primary, operation, inFlight, startTimes);
+            while (!inFlight.isEmpty()) {
+                Future<String> done;
+                if (config.isHedgingEnabled() && !hedged && !remaining.isEmpty()) {
+                    done = completions.poll(hedgeDelayNanos(primary, false), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        hedged = true;
+                        LlmBackend hedge = remaining.poll();
+                        log.debug("{} is slow, hedging with {}", primary.name(), hedge.name());
+                        submit(completions, hedge, operation, inFlight, startTimes);
+                        continue;
+                    }
+                } else {
+                    done = completions.take();
+                }
+
+                LlmBackend backend = inFlight.remove(done);
+                long latency = System.nanoTime() - startTimes.remove(done);
+                try {
+                    String result = done.get();
+                    backend.recordSuccess(false, latency);
+                    return result;
+                } catch (ExecutionException e) {
+                    backend.recordFailure(cooldownNanos);
+                    lastError = asRuntimeException(e.getCause());
+                    log.warn("LLM backend {} failed: {}", backend.name(), e.getCause().getMessage());
+                }
+                // Replace a failed attempt while nothing runs, or while hedging keep two running
+                if ((inFlight.isEmpty() || hedged) && !remaining.isEmpty()) {
+                    primary = remaining.poll();
+                    submit(completions, primary, operation, inFlight, startTimes);
+                }
+            }
+            throw lastError != null ? lastError : new LlmException("No LLM backend is available");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while waiting for the LLM", e);
+        } finally {
+            // Cancel the losing request of a hedge
+            inFlight.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void submit(CompletionService<String> completions, LlmBackend backend, Function<LlmService, String> operation,
+                        Map<Future<String>, LlmBackend> inFlight, Map<Future<String>, Long> startTimes) {
+        try {
+            // Keep the backend call part of the caller's trace
+            Supplier<String> call = metrics.wrap(() -> operation.apply(backend.service()));
+            Future<String> future = completions.submit(call::get);
+            inFlight.put(future, backend);
+            startTimes.put(future, System.nanoTime());
+        } catch (RejectedExecutionException e) {
+            throw new LlmException("Too many concurrent LLM requests, please retry shortly");
+        }
+    }
+
+    private static RuntimeException asRuntimeException(Throwable error) {
+        return error instanceof RuntimeException runtime ? runtime
+                : new LlmException("An error occurred while generating a response: " + error.getMessage(), error);
+    }
+
+    private interface StreamOperation {
+        void stream(LlmService service, StreamingResponseHandler<String> handler);
+    }
+
+    /**
+     * One streamed call over the ranked backends. The first attempt to produce a token or
+     * complete wins and is relayed to the caller; every other attempt is cancelled.
+     */
+    private final class StreamRace {
+
+        private final StreamingResponseHandler<String> handler;
+        private final Deque<LlmBackend> remaining;
+        private final StreamOperation operation;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final List<Attempt> attempts = new ArrayList<>();
+        private volatile Attempt winner;
+        private int running;
+        private boolean hedged;
+        private Throwable lastError;
+
+        private StreamRace(StreamingResponseHandler<String> handler, List<LlmBackend> ranked, StreamOperation operation) {
+            this.handler = handler;
+            this.remaining = new ArrayDeque<>(ranked);
+            this.operation = operation;
+        }
+
+        private void run() {
+            Attempt primary;
+            synchronized (this) {
+                primary = start();
+            }
+            try {
+                if (primary != null && config.isHedgingEnabled()
+                        && !finished.await(hedgeDelayNanos(primary.backend, true), TimeUnit.NANOSECONDS)) {
+                    synchronized (this) {
+                        if (winner == null && finished.getCount() > 0 && !remaining.isEmpty()) {
+                            log.debug("{} is slow to stream, hedging with {}", primary.backend.name(), remaining.peek().name());
+                            hedged = true;
+                            start();
+                        }
+                    }
+                }
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(null);
+                finish(() -> handler.onError(new LlmException("Interrupted while waiting for the LLM", e)));
+            }
+        }
+
+        /**
+         * Start the next backend, or report the last error when none is left
+         */
+        private Attempt start() {
+            while (!remaining.isEmpty()) {
+                Attempt attempt = new Attempt(remaining.poll());
+                try {
+                    attempt.future = executor.submit(metrics.wrap(() -> operation.stream(attempt.backend.service(), attempt)));
+                    attempts.add(attempt);
+                    running++;
+                    return attempt;
+                } catch (RejectedExecutionException e) {
+                    lastError = new LlmException("Too many concurrent LLM requests, please retry shortly");
+                    break;
+                }
+            }
+            Throwable error = lastError != null ? lastError : new LlmException("No LLM backend is available");
+            finish(() -> handler.onError(error));
+            return null;
+        }
+
+        private synchronized boolean claim(Attempt attempt) {
+            if (winner == null && finished.getCount() > 0) {
+                winner = attempt;
+                attempt.backend.recordSuccess(true, System.nanoTime() - attempt.startNanos);
+                cancelAll(attempt);
+            }
+            return winner == attempt;
+        }
+
+        private synchronized void failed(Attempt attempt, Throwable error) {
+            if (winner == attempt) {
+                attempt.backend.recordFailure(cooldownNanos);
+                finish(() -> handler.onError(error));
+                return;
+            }
+            if (winner != null || attempt.cancelled) {
+                return;
+            }
+            running--;
+            attempt.backend.recordFailure(cooldownNanos);
+            lastError = error;
+            log.warn("LLM backend {} failed to stream: {}", attempt.backend.name(), error.getMessage());
+            // Replace a failed attempt while nothing runs, or while hedging keep two running
+            if (running == 0 || (hedged && !remaining.isEmpty())) {
+                start();
+            }
+        }
+
+        private void cancelAll(Attempt except) {
+            synchronized (this) {
+                for (Attempt attempt : attempts) {
+                    if (attempt != except && !attempt.cancelled) {
+                        attempt.cancelled = true;
+                        attempt.future.cancel(true);
+                    }
+                }
+            }
+        }
+
+        private void finish(Runnable report) {
+            synchronized (this) {
+                if (finished.getCount() == 0) {
+                    return;
+                }
+                try {
+                    report.run();
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+
+        private final class Attempt implements StreamingResponseHandler<String> {
+
+            private final LlmBackend backend;
+            private final long startNanos = System.nanoTime();
+            private Future<?> future;
+            private boolean cancelled;
+
+            private Attempt(LlmBackend backend) {
+                this.backend = backend;
+            }
+
+            @Override
+            public void onNext(String token) {
+                if (winner != this && !claim(this)) {
+                    throw new CancellationException("Another backend answered first");
+                }
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<String> response) {
+                if (claim(this)) {
+                    finish(() -> handler.onComplete(response));
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                failed(this, error);
+            }
+        }
+    }
+}
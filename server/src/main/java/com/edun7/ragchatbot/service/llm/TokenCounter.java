@@ -0,0 +1,28 @@
+package com.edun7.ragchatbot.service.llm;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the tokens a text takes up in an LLM prompt
+ */
+public interface TokenCounter {
+
+    int count(String text);
+
+    /**
+     * Estimate without a tokenizer: one token per word or punctuation mark, and at least one
+     * per four characters. Subword tokenizers rarely exceed it on English prose.
+     */
+    static TokenCounter estimating() {
+        Pattern pieces = Pattern.compile("\\w+|[^\\s\\w]");
+        return text -> {
+            Matcher matcher = pieces.matcher(text);
+            int words = 0;
+            while (matcher.find()) {
+                words++;
+            }
+            return Math.max(words, (text.length() + 3) / 4);
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package com.edun7.ragchatbot.service.metrics;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers and distributions of the RAG pipeline stages.
+ * <p>
+ * Stages that run on the caller's thread are recorded as observations, which become a timer
+ * named after the stage and, when tracing is enabled, a span nested under the observation
+ * that was current when the stage started (e.g. the {@link #CHAT} span of a request). Work
+ * handed to another thread keeps that parent through {@link #wrap}. Intervals that do not map
+ * onto a single call, such as the time to the first streamed token, are recorded as plain
+ * timers.
+ */
+@Component
+public class RagMetrics {
+
+    public static final String CHAT = "rag.chat";
+    public static final String EXTRACT = "rag.extract";
+    public static final String SPLIT = "rag.split";
+    public static final String EMBED = "rag.embed";
+    public static final String INDEX = "rag.index";
+    public static final String QUERY_EMBED = "rag.query.embed";
+    public static final String SEARCH = "rag.search";
+    public static final String RERANK = "rag.rerank";
+    public static final String PROMPT = "rag.prompt";
+    public static final String LLM = "rag.llm";
+    public static final String LLM_FIRST_TOKEN = "rag.llm.first.token";
+    public static final String LLM_QUEUE_WAIT = "rag.llm.queue.wait";
+    public static final String LLM_UPSTREAM = "rag.llm.upstream";
+    public static final String LLM_RETRIES = "rag.llm.retries";
+    public static final String LLM_REJECTIONS = "rag.llm.rejections";
+    public static final String LLM_IN_FLIGHT = "rag.llm.in.flight";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary embedBatchSize;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary responseTokens;
+
+    public RagMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+        this.embedBatchSize = DistributionSummary.builder("rag.embed.batch.size")
+                .description("Texts embedded in one model inference")
+                .register(meterRegistry);
+        this.promptTokens = DistributionSummary.builder("rag.prompt.tokens")
+                .description("Tokens of the prompts sent to the LLM")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.responseTokens = DistributionSummary.builder("rag.response.tokens")
+                .description("Tokens of the responses generated by the LLM")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    public <T> T observe(String stage, Supplier<T> work) {
+        return Observation.createNotStarted(stage, observationRegistry).observe(work);
+    }
+
+    public void observe(String stage, Runnable work) {
+        Observation.createNotStarted(stage, observationRegistry).observe(work);
+    }
+
+    public <T, E extends Throwable> T observeChecked(String stage, Observation.CheckedCallable<T, E> work) throws E {
+        return Observation.createNotStarted(stage, observationRegistry).observeChecked(work);
+    }
+
+    /**
+     * Observe a stage with low-cardinality tags, e.g. the LLM backend
+     */
+    public <T> T observe(String stage, KeyValues tags, Supplier<T> work) {
+        return Observation.createNotStarted(stage, observationRegistry)
+                .lowCardinalityKeyValues(tags)
+                .observe(work);
+    }
+
+    public void observe(String stage, KeyValues tags, Runnable work) {
+        Observation.createNotStarted(stage, observationRegistry)
+                .lowCardinalityKeyValues(tags)
+                .observe(work);
+    }
+
+    /**
+     * Run the work on another thread as part of the observation that is current now
+     */
+    public <T> Supplier<T> wrap(Supplier<T> work) {
+        Observation parent = observationRegistry.getCurrentObservation();
+        return parent == null ? work : () -> parent.scoped(work);
+    }
+
+    public Runnable wrap(Runnable work) {
+        Observation parent = observationRegistry.getCurrentObservation();
+        return parent == null ? work : () -> parent.scoped(work);
+    }
+
+    public Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name).description(description).tags(tags).register(meterRegistry);
+    }
+
+    public Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name).description(description).tags(tags).register(meterRegistry);
+    }
+
+    public void gauge(String name, String description, Supplier<Number> value, String... tags) {
+        Gauge.builder(name, value).description(description).tags(tags).register(meterRegistry);
+    }
+
+    public void record(String timer, long nanos, String... tags) {
+        Timer.builder(timer).tags(tags).register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void embedBatch(int size) {
+        embedBatchSize.record(size);
+    }
+
+    public void promptTokens(int tokens) {
+        promptTokens.record(tokens);
+    }
+
+    public void responseTokens(int tokens) {
+        responseTokens.record(tokens);
+    }
+}
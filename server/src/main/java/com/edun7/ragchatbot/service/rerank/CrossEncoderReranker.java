@@ -0,0 +1,179 @@
+package com.edun7.ragchatbot.service.rerank;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.RerankConfig;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Scores query/segment pairs with a cross-encoder running in-process on ONNX Runtime, the
+ * runtime the embedding model already uses.
+ * <p>
+ * Candidates are scored in batches of {@code batchSize} pairs, each padded to its longest
+ * pair. The batches of one query run in parallel on a fixed pool with one ONNX thread per
+ * batch, so a 50-candidate re-rank is spread over the cores instead of queuing on one
+ * session. If scoring fails the candidates keep their retrieval order.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.rerank.enabled", havingValue = "true")
+public class CrossEncoderReranker implements Reranker {
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final boolean needsTokenTypes;
+    private final int batchSize;
+    private final ExecutorService scoringExecutor;
+
+    public CrossEncoderReranker(RerankConfig config, ExecutorFactory executorFactory) {
+        if (config.getModelPath() == null || config.getTokenizerPath() == null) {
+            throw new IllegalStateException("app.rerank.model-path and app.rerank.tokenizer-path are required when re-ranking is enabled");
+        }
+        try {
+            this.environment = OrtEnvironment.getEnvironment();
+            try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                // Parallelism comes from scoring batches concurrently
+                options.setIntraOpNumThreads(1);
+                this.session = environment.createSession(config.getModelPath(), options);
+            }
+            Map<String, String> tokenizerOptions = new HashMap<>();
+            tokenizerOptions.put("truncation", "true");
+            tokenizerOptions.put("padding", "false");
+            tokenizerOptions.put("maxLength", String.valueOf(config.getMaxLength()));
+            this.tokenizer = HuggingFaceTokenizer.newInstance(Path.of(config.getTokenizerPath()), tokenizerOptions);
+        } catch (Exception e) {
+            log.error("Failed to initialize re-ranking model", e);
+            throw new RuntimeException("Failed to initialize re-ranking model", e);
+        }
+        this.needsTokenTypes = session.getInputNames().contains("token_type_ids");
+        this.batchSize = Math.max(1, config.getBatchSize());
+        int threads = config.resolveThreads();
+        this.scoringExecutor = executorFactory.newCpuExecutor("rerank-", threads);
+        log.info("Re-ranking model {} loaded, scoring batches of {} on {} threads",
+                config.getModelPath(), batchSize, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scoringExecutor.shutdownNow();
+        tokenizer.close();
+        try {
+            session.close();
+        } catch (OrtException e) {
+            log.warn("Failed to close re-ranking model", e);
+        }
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> rerank(String query, List<EmbeddingMatch<TextSegment>> candidates, int topN) {
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        long start = System.nanoTime();
+        float[] scores;
+        try {
+            scores = score(query, candidates);
+        } catch (Exception e) {
+            log.warn("Re-ranking failed, keeping retrieval order", e);
+            return candidates.subList(0, Math.min(topN, candidates.size()));
+        }
+
+        List<EmbeddingMatch<TextSegment>> reranked = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            EmbeddingMatch<TextSegment> candidate = candidates.get(i);
+            reranked.add(new EmbeddingMatch<>((double) scores[i], candidate.embeddingId(),
+                    candidate.embedding(), candidate.embedded()));
+        }
+        reranked.sort(Comparator.comparingDouble((EmbeddingMatch<TextSegment> match) -> match.score()).reversed());
+        log.debug("Re-ranked {} candidates in {} ms", candidates.size(), (System.nanoTime() - start) / 1_000_000);
+        return reranked.subList(0, Math.min(topN, reranked.size()));
+    }
+
+    private float[] score(String query, List<EmbeddingMatch<TextSegment>> candidates) {
+        float[] scores = new float[candidates.size()];
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            int batchStart = from;
+            int batchEnd = Math.min(from + batchSize, candidates.size());
+            Runnable batch = () -> scoreBatch(query, candidates, batchStart, batchEnd, scores);
+            if (batchEnd == candidates.size()) {
+                // The caller scores the last batch itself instead of just waiting
+                batch.run();
+            } else {
+                batches.add(CompletableFuture.runAsync(batch, scoringExecutor));
+            }
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to score re-ranking batch", e.getCause());
+        }
+        return scores;
+    }
+
+    private void scoreBatch(String query, List<EmbeddingMatch<TextSegment>> candidates, int from, int to, float[] scores) {
+        int size = to - from;
+        Encoding[] encodings = new Encoding[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            encodings[i] = tokenizer.encode(query, candidates.get(from + i).embedded().text());
+            length = Math.max(length, encodings[i].getIds().length);
+        }
+
+        // Zero-padded to the longest pair of the batch, the attention mask hides the padding
+        long[][] inputIds = new long[size][length];
+        long[][] attentionMask = new long[size][length];
+        long[][] tokenTypeIds = new long[size][length];
+        for (int i = 0; i < size; i++) {
+            long[] ids = encodings[i].getIds();
+            System.arraycopy(ids, 0, inputIds[i], 0, ids.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, attentionMask[i], 0, ids.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, tokenTypeIds[i], 0, ids.length);
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask));
+            if (needsTokenTypes) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] logits = (float[][]) result.get(0).getValue();
+                for (int i = 0; i < size; i++) {
+                    // Single-logit models score relevance directly, two-logit models in the last column
+                    scores[from + i] = sigmoid(logits[i][logits[i].length - 1]);
+                }
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Cross-encoder inference failed", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static float sigmoid(float logit) {
+        return (float) (1 / (1 + Math.exp(-logit)));
+    }
+}
@@ -0,0 +1,18 @@
+package com.edun7.ragchatbot.service.rerank;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+import java.util.List;
+
+/**
+ * Orders retrieved segments by their relevance to the query
+ */
+public interface Reranker {
+
+    /**
+     * Score every candidate against the query and return the best {@code topN}, best first.
+     * The scores of the returned matches are the re-ranking scores.
+     */
+    List<EmbeddingMatch<TextSegment>> rerank(String query, List<EmbeddingMatch<TextSegment>> candidates, int topN);
+}
@@ -0,0 +1,85 @@
+package com.edun7.ragchatbot.service.session;
+
+import com.edun7.ragchatbot.model.ChatMessage;
+import com.edun7.ragchatbot.model.ConversationHistory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History of one conversation.
+ * <p>
+ * Turns of a session run one at a time: a request takes the turn permit before it reads the
+ * history and gives it back once its answer has been recorded, which may happen on another
+ * thread after the older turns were summarized. Messages and summary are only touched while
+ * the permit is held.
+ */
+public class ChatSession {
+
+    private final String id;
+    private final Semaphore turn = new Semaphore(1);
+    private final Deque<ChatMessage> messages = new ArrayDeque<>();
+    private String summary;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    ChatSession(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    boolean tryBeginTurn(long timeout, TimeUnit unit) throws InterruptedException {
+        lastUsedNanos = System.nanoTime();
+        return turn.tryAcquire(timeout, unit);
+    }
+
+    void endTurn() {
+        lastUsedNanos = System.nanoTime();
+        turn.release();
+    }
+
+    boolean isIdle(long cutoffNanos) {
+        return lastUsedNanos - cutoffNanos < 0 && turn.availablePermits() > 0;
+    }
+
+    long getLastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    ConversationHistory history() {
+        return new ConversationHistory(summary, List.copyOf(messages));
+    }
+
+    void append(ChatMessage message) {
+        messages.addLast(message);
+    }
+
+    Deque<ChatMessage> messages() {
+        return messages;
+    }
+
+    /**
+     * Remove and return the oldest messages
+     */
+    List<ChatMessage> removeOldest(int count) {
+        List<ChatMessage> removed = new ArrayList<>(count);
+        for (int i = 0; i < count && !messages.isEmpty(); i++) {
+            removed.add(messages.removeFirst());
+        }
+        return removed;
+    }
+
+    String getSummary() {
+        return summary;
+    }
+
+    void setSummary(String summary) {
+        this.summary = summary;
+    }
+}
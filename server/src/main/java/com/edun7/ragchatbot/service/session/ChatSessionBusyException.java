@@ -0,0 +1,13 @@
+package com.edun7.ragchatbot.service.session;
+
+/**
+ * Thrown when the previous turn of a session does not finish within the turn timeout
+ */
+public class ChatSessionBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ChatSessionBusyException(String message) {
+        super(message);
+    }
+}
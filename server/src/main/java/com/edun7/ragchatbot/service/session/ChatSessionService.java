@@ -0,0 +1,241 @@
+package com.edun7.ragchatbot.service.session;
+
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.SessionConfig;
+import com.edun7.ragchatbot.model.ChatMessage;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import com.edun7.ragchatbot.service.llm.ContextBuilder;
+import com.edun7.ragchatbot.service.llm.LlmService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the history of chat sessions in memory and turns it into retrieval queries and
+ * prompt history.
+ * <p>
+ * A session keeps its most recent messages verbatim. Once there are more than
+ * {@code recentMessages} of them, or they exceed {@code maxHistoryTokens}, the oldest ones
+ * are folded into a running summary by the LLM in the background, and the next turn of the
+ * session waits for that. Sessions are dropped after {@code idleTimeout} without a request,
+ * and the least recently used idle session makes room once {@code maxSessions} are stored,
+ * so memory stays proportional to the active users.
+ */
+@Slf4j
+@Service
+public class ChatSessionService {
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final String REWRITE_INSTRUCTIONS =
+            "Rewrite the user's latest question as a standalone question that can be understood " +
+            "without the conversation. Resolve pronouns and references like 'the second one' " +
+            "using the conversation. Keep the question's language and intent, do not answer it. " +
+            "Reply with the rewritten question only.";
+
+    private static final String SUMMARY_INSTRUCTIONS =
+            "Update the summary of a conversation between a user and an educational assistant " +
+            "with the new messages. Keep the topics, documents, facts and open questions a " +
+            "follow-up question could refer to. Reply with the updated summary only, in at most %d words.";
+
+    private final SessionConfig config;
+    private final LlmService llmService;
+    private final ContextBuilder contextBuilder;
+    private final ExecutorService summaryExecutor;
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneNanos = new AtomicLong(System.nanoTime());
+
+    public ChatSessionService(SessionConfig config, LlmService llmService, ContextBuilder contextBuilder,
+                              ExecutorFactory executorFactory) {
+        this.config = config;
+        this.llmService = llmService;
+        this.contextBuilder = contextBuilder;
+        this.summaryExecutor = executorFactory.newBlockingExecutor("session-summary-",
+                config.getSummaryThreads(), config.getSummaryQueueCapacity());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        summaryExecutor.shutdownNow();
+    }
+
+    /**
+     * The id of the session to continue, or a new one
+     */
+    public String resolveId(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return UUID.randomUUID().toString();
+        }
+        if (!SESSION_ID.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Invalid session id");
+        }
+        return sessionId;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Start a turn of the session, creating it if it does not exist. Waits for the previous
+     * turn to finish; every successful call must be followed by {@link #endTurn}.
+     *
+     * @throws ChatSessionBusyException if the previous turn does not finish within the turn timeout
+     */
+    public ChatSession beginTurn(String sessionId) {
+        pruneIdleSessions();
+        ChatSession session = sessions.computeIfAbsent(sessionId, ChatSession::new);
+        if (sessions.size() > config.getMaxSessions()) {
+            evictLeastRecentlyUsed(session);
+        }
+        try {
+            if (!session.tryBeginTurn(config.getTurnTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ChatSessionBusyException("The previous message of this conversation is still being answered");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChatSessionBusyException("Interrupted while waiting for the conversation");
+        }
+        return session;
+    }
+
+    /**
+     * History of the session, only valid while its turn is held
+     */
+    public ConversationHistory history(ChatSession session) {
+        return session.history();
+    }
+
+    /**
+     * Rewrite a follow-up into a question that can be searched without the history.
+     * Falls back to the query as asked if there is no history or the rewrite fails.
+     */
+    public String rewriteQuery(ConversationHistory history, String query) {
+        if (!config.isRewriteQueries() || history.isEmpty()) {
+            return query;
+        }
+        try {
+            String rewritten = llmService.complete(REWRITE_INSTRUCTIONS,
+                    transcript(history.getSummary(), history.getMessages()) + "\nLatest question: " + query);
+            if (rewritten == null || rewritten.isBlank()) {
+                return query;
+            }
+            log.debug("Rewrote query '{}' as '{}'", query, rewritten.trim());
+            return rewritten.trim();
+        } catch (Exception e) {
+            log.warn("Failed to rewrite query from the conversation, searching with it as asked: {}", e.getMessage());
+            return query;
+        }
+    }
+
+    /**
+     * Finish the turn. With an answer the exchange is added to the history, otherwise the
+     * history stays as it was.
+     */
+    public void endTurn(ChatSession session, String query, String answer) {
+        if (answer == null) {
+            session.endTurn();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        session.append(ChatMessage.builder().role("user").content(query).timestamp(now).build());
+        session.append(ChatMessage.builder().role("assistant").content(answer).timestamp(now).build());
+
+        int overflow = overflow(session);
+        if (overflow == 0) {
+            session.endTurn();
+            return;
+        }
+        List<ChatMessage> older = session.removeOldest(overflow);
+        try {
+            // The turn stays held until the summary is stored, so the next turn sees it
+            summaryExecutor.execute(() -> {
+                try {
+                    summarize(session, older);
+                } finally {
+                    session.endTurn();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Summary workers are busy, dropping {} older messages of session {}", older.size(), session.getId());
+            session.endTurn();
+        }
+    }
+
+    /**
+     * Number of oldest messages to fold into the summary, always whole exchanges
+     */
+    private int overflow(ChatSession session) {
+        int count = session.messages().size();
+        int keep = Math.min(count, Math.max(2, config.getRecentMessages()));
+        int tokens = 0;
+        int kept = 0;
+        for (var iterator = session.messages().descendingIterator(); iterator.hasNext() && kept < keep; kept++) {
+            tokens += contextBuilder.countTokens(iterator.next().getContent());
+            if (tokens > config.getMaxHistoryTokens() && kept >= 2) {
+                break;
+            }
+        }
+        int remove = count - kept;
+        return remove + (remove % 2);
+    }
+
+    private void summarize(ChatSession session, List<ChatMessage> older) {
+        try {
+            String summary = llmService.complete(String.format(SUMMARY_INSTRUCTIONS, config.getSummaryMaxWords()),
+                    transcript(session.getSummary(), older));
+            if (summary != null && !summary.isBlank()) {
+                session.setSummary(summary.trim());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to summarize {} older messages of session {}, dropping them: {}",
+                    older.size(), session.getId(), e.getMessage());
+        }
+    }
+
+    private static String transcript(String summary, List<ChatMessage> messages) {
+        StringBuilder text = new StringBuilder();
+        if (summary != null && !summary.isBlank()) {
+            text.append("Summary of the earlier conversation: ").append(summary).append("\n\n");
+        }
+        for (ChatMessage message : messages) {
+            text.append("user".equals(message.getRole()) ? "User: " : "Assistant: ")
+                    .append(message.getContent())
+                    .append('\n');
+        }
+        return text.toString();
+    }
+
+    private void pruneIdleSessions() {
+        long now = System.nanoTime();
+        long last = lastPruneNanos.get();
+        if (now - last < PRUNE_INTERVAL_NANOS || !lastPruneNanos.compareAndSet(last, now)) {
+            return;
+        }
+        long cutoff = now - config.getIdleTimeout().toNanos();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.isIdle(cutoff));
+        if (sessions.size() < before) {
+            log.debug("Dropped {} idle chat sessions", before - sessions.size());
+        }
+    }
+
+    private void evictLeastRecentlyUsed(ChatSession keep) {
+        sessions.values().stream()
+                .filter(session -> session != keep && session.isIdle(System.nanoTime()))
+                .min(Comparator.comparingLong(ChatSession::getLastUsedNanos))
+                .ifPresent(session -> sessions.remove(session.getId(), session));
+    }
+}
@@ -1,38 +1,89 @@
 package com.edun7.ragchatbot.service.vectordb;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.KnnQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.Rescore;
+import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.json.JsonData;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
 import com.edun7.ragchatbot.config.ElasticsearchConfig;
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.RetrievalConfig;
+import com.edun7.ragchatbot.config.VectorDbConfig;
+import com.edun7.ragchatbot.config.VectorQuantization;
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import com.edun7.ragchatbot.service.embedding.EmbeddingService;
+import com.edun7.ragchatbot.service.embedding.QueryEmbeddingCache;
+import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.BgeSmallEnEmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.elasticsearch.ElasticsearchEmbeddingStore;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @Primary
+@ConditionalOnProperty(name = "app.vectordb.type", havingValue = "elasticsearch", matchIfMissing = true)
 public class ElasticsearchVectorDbService implements VectorDbService {
     
     private final EmbeddingStore<TextSegment> embeddingStore;
-    private final EmbeddingModel embeddingModel;
+    private final EmbeddingService embeddingService;
     private final ElasticsearchClient esClient;
+    private final ElasticsearchAsyncClient esAsyncClient;
     private final ElasticsearchConfig config;
+    private final EmbeddingConfig embeddingConfig;
+    private final VectorDbConfig vectorDbConfig;
+    private final RetrievalConfig retrievalConfig;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final ExecutorService ingestionExecutor;
     
-    public ElasticsearchVectorDbService(ElasticsearchConfig config) {
+    // Segments fetched or deleted per request when working on a single document
+    private static final int LOOKUP_PAGE_SIZE = 1000;
+    
+    public ElasticsearchVectorDbService(ElasticsearchConfig config, EmbeddingConfig embeddingConfig,
+                                        VectorDbConfig vectorDbConfig, RetrievalConfig retrievalConfig,
+                                        QueryEmbeddingCache queryEmbeddingCache, EmbeddingService embeddingService,
+                                        ExecutorFactory executorFactory) {
         this.config = config;
+        this.embeddingConfig = embeddingConfig;
+        this.vectorDbConfig = vectorDbConfig;
+        this.retrievalConfig = retrievalConfig;
+        this.embeddingService = embeddingService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
         
         // Create the Elasticsearch client
         RestClient restClient = RestClient.builder(
@@ -43,6 +94,8 @@ public class ElasticsearchVectorDbService implements VectorDbService {
                 restClient, new JacksonJsonpMapper());
                 
         this.esClient = new ElasticsearchClient(transport);
+        this.esAsyncClient = new ElasticsearchAsyncClient(transport);
+        checkQuantizationSupported();
         
         // Initialize the embedding store first
         try {
@@ -62,13 +115,67 @@ public class ElasticsearchVectorDbService implements VectorDbService {
             throw new RuntimeException("Failed to initialize Elasticsearch", e);
         }
         
-        // Initialize the embedding model
+        // Bounded worker pool for batched ingestion; inference itself runs in the embedding service
+        int workerThreads = embeddingConfig.resolveWorkerThreads();
+        this.ingestionExecutor = executorFactory.newCpuExecutor("embedding-worker-", workerThreads);
+        log.info("Ingestion worker pool initialized with {} threads and batch size {}",
+                workerThreads, embeddingConfig.getBatchSize());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ingestionExecutor.shutdown();
+        if (!ingestionExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            ingestionExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Fail fast when the cluster is too old for the configured index type, instead of failing
+     * to create the index later
+     */
+    private void checkQuantizationSupported() {
+        VectorQuantization quantization = vectorDbConfig.getQuantization();
+        if (quantization == VectorQuantization.NONE) {
+            return;
+        }
+        String version;
         try {
-            this.embeddingModel = new BgeSmallEnEmbeddingModel();
-            log.info("Embedding model initialized successfully");
-        } catch (Exception e) {
-            log.error("Failed to initialize embedding model", e);
-            throw new RuntimeException("Failed to initialize embedding model", e);
+            version = esClient.info().version().number();
+        } catch (IOException e) {
+            log.warn("Could not read the Elasticsearch version to check {} quantization: {}", quantization, e.getMessage());
+            return;
+        }
+        if (compareVersions(version, quantization.getMinimumElasticsearchVersion()) < 0) {
+            throw new IllegalStateException("app.vectordb.quantization=" + quantization.name().toLowerCase()
+                    + " needs Elasticsearch " + quantization.getMinimumElasticsearchVersion() + " or later for "
+                    + quantization.getElasticsearchIndexType() + ", but " + config.getUrl() + " runs " + version);
+        }
+    }
+    
+    /**
+     * Compare dotted release numbers such as 8.11.1, ignoring suffixes like -SNAPSHOT
+     */
+    private static int compareVersions(String version, String other) {
+        String[] left = version.split("[.-]");
+        String[] right = other.split("[.-]");
+        for (int i = 0; i < Math.max(left.length, right.length); i++) {
+            int difference = Integer.compare(versionPart(left, i), versionPart(right, i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+    
+    private static int versionPart(String[] parts, int index) {
+        if (index >= parts.length) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(parts[index]);
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
     
@@ -78,19 +185,31 @@ public class ElasticsearchVectorDbService implements VectorDbService {
                     builder.index(indexName)).value();
                     
             if (!indexExists) {
-                log.info("Creating Elasticsearch index: {}", indexName);
+                // int8_hnsw needs Elasticsearch 8.12+, bbq_hnsw 8.18+; both keep the raw floats for rescoring
+                String indexType = vectorDbConfig.getQuantization().getElasticsearchIndexType();
+                log.info("Creating Elasticsearch index: {} ({})", indexName, indexType);
                 esClient.indices().create(builder -> 
                         builder.index(indexName)
-                        .mappings(mappings -> 
-                            mappings.properties("embedding", property -> 
+                        .mappings(mappings -> mappings
+                            // Exact-match fields for filters and document-scoped lookups and deletes
+                            .properties("metadata", property -> 
+                                property.object(object -> object
+                                    .properties(SegmentMetadata.DOCUMENT_ID, keyword -> keyword.keyword(k -> k))
+                                    .properties(SegmentMetadata.SEGMENT_HASH, keyword -> keyword.keyword(k -> k))
+                                    .properties(SegmentMetadata.PAGE, keyword -> keyword.keyword(k -> k))
+                                    .properties(SegmentMetadata.INDEX, keyword -> keyword.keyword(k -> k))
+                                )
+                            )
+                            // ElasticsearchEmbeddingStore writes the embedding to the "vector" field
+                            .properties("vector", property -> 
                                 property.denseVector(denseVector -> 
-                                    denseVector.dims(384)
+                                    denseVector.dims(vectorDbConfig.getDimension())
                                     .index(true)
                                     .similarity("cosine")
                                     .indexOptions(indexOptions -> 
-                                        indexOptions.type("hnsw")
-                                        .m(16)
-                                        .efConstruction(100)
+                                        indexOptions.type(indexType)
+                                        .m(vectorDbConfig.getHnswM())
+                                        .efConstruction(vectorDbConfig.getHnswEfConstruction())
                                     )
                                 )
                             )
@@ -107,34 +226,73 @@ public class ElasticsearchVectorDbService implements VectorDbService {
     
     @Override
     public void addSegment(TextSegment segment) {
-        Embedding embedding = embeddingModel.embed(segment).content();
+        Embedding embedding = embeddingService.embedNow(segment.text());
         embeddingStore.add(embedding, segment);
         log.debug("Added segment to Elasticsearch: {}", segment.text().substring(0, Math.min(50, segment.text().length())));
     }
     
     @Override
-    public void addSegments(List<TextSegment> segments) {
-        for (TextSegment segment : segments) {
-            addSegment(segment);
+    public void addSegments(List<TextSegment> segments, IndexingProgressListener listener) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, embeddingConfig.getBatchSize());
+        
+        // Embed and index micro-batches in parallel, one embedAll and one bulk request per batch
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < segments.size(); from += batchSize) {
+            List<TextSegment> batch = segments.subList(from, Math.min(from + batchSize, segments.size()));
+            batches.add(ingestionExecutor.submit(() -> addBatch(batch, listener)));
+        }
+        
+        try {
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while indexing segments", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            throw new RuntimeException("Failed to index segments", e.getCause());
         }
-        log.info("Added {} segments to Elasticsearch", segments.size());
+        
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Added {} segments to Elasticsearch in {} batches ({} ms, {} segments/s)",
+                segments.size(), batches.size(), elapsedMillis,
+                String.format("%.1f", segments.size() * 1000.0 / elapsedMillis));
+    }
+    
+    private void addBatch(List<TextSegment> batch, IndexingProgressListener listener) {
+        List<Embedding> embeddings = embeddingService.embedAll(batch).join();
+        listener.segmentsEmbedded(batch.size());
+        embeddingStore.addAll(embeddings, batch);
+        listener.segmentsIndexed(batch.size());
+        log.debug("Added batch of {} segments to Elasticsearch", batch.size());
+    }
+    
+    @Override
+    public Embedding embedQuery(String query) {
+        // Reuse the embedding of a previously seen query
+        return queryEmbeddingCache.get(query, embeddingService::embedQuery);
+    }
+    
+    @Override
+    public List<Embedding> embedQueries(List<String> queries) {
+        // Embed every query the cache misses in one batch
+        return queryEmbeddingCache.getAll(queries, texts -> embeddingService.embedAll(
+                texts.stream().map(TextSegment::from).collect(Collectors.toList())).join());
     }
     
     @Override
     public List<EmbeddingMatch<TextSegment>> search(String query, int maxResults) {
         try {
-            // Embed the query text
-            Embedding queryEmbedding = embeddingModel.embed(query).content();
-            
-            // Check if maxResults is greater than zero
-            if (maxResults <= 0) {
-                maxResults = 5; // Default to 5 results if invalid value provided
-            }
-            
-            log.info("Searching for '{}' with maxResults={}", query, maxResults);
-            
-            List<EmbeddingMatch<TextSegment>> results = embeddingStore.findRelevant(queryEmbedding, maxResults);
-            log.info("Search for '{}' returned {} results", query, results.size());
+            log.debug("Searching for '{}' with maxResults={}", query, maxResults);
+            List<EmbeddingMatch<TextSegment>> results = search(embedQuery(query), maxResults);
+            log.debug("Search for '{}' returned {} results", query, results.size());
             return results;
         } catch (Exception e) {
             log.error("Error during vector search: {}", e.getMessage(), e);
@@ -142,6 +300,331 @@ public class ElasticsearchVectorDbService implements VectorDbService {
         }
     }
     
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults) {
+        List<EmbeddingMatch<TextSegment>> results = search(null, queryEmbedding, maxResults, MetadataFilter.NONE);
+        log.debug("Query embedding cache: {} hits, {} misses, {} evictions",
+                queryEmbeddingCache.getHitCount(), queryEmbeddingCache.getMissCount(),
+                queryEmbeddingCache.getEvictionCount());
+        return results;
+    }
+    
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults) {
+        return search(query, queryEmbedding, maxResults, MetadataFilter.NONE);
+    }
+    
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults,
+                                                    MetadataFilter filter) {
+        boolean hybrid = retrievalConfig.isHybridEnabled() && query != null && !query.isBlank();
+        if (maxResults <= 0) {
+            maxResults = 5;
+        }
+        
+        String indexName = config.getIndex();
+        int depth = hybrid ? Math.max(maxResults, retrievalConfig.getCandidatesPerLeg()) : maxResults;
+        List<Float> queryVector = new ArrayList<>(queryEmbedding.vector().length);
+        for (float value : queryEmbedding.vector()) {
+            queryVector.add(value);
+        }
+        // Filters run inside the kNN search, so only matching segments are candidates
+        List<Query> filters = toQueries(filter);
+        KnnQuery knn = knnQuery(queryVector, depth, filters);
+        List<Rescore> rescore = rescore(queryVector, depth);
+        
+        // Both legs are in flight at once, so hybrid search takes as long as the slower leg
+        long start = System.nanoTime();
+        CompletableFuture<SearchLeg> vectorLeg = runLeg(() -> esAsyncClient.search(s -> {
+            s.index(indexName)
+                    .size(depth)
+                    .source(source -> source.filter(f -> f.includes("text", "metadata")))
+                    .knn(knn);
+            return rescore.isEmpty() ? s : s.rescore(rescore);
+        }, SegmentDocument.class));
+        if (!hybrid) {
+            SearchLeg vector = vectorLeg.join();
+            if (vector.error != null) {
+                log.error("Error during vector search: {}", vector.error.getMessage(), vector.error);
+            }
+            log.debug("Vector search ({}) returned {} results in {} ms", filter,
+                    vector.matches.size(), TimeUnit.NANOSECONDS.toMillis(vector.nanos));
+            return vector.matches;
+        }
+        CompletableFuture<SearchLeg> lexicalLeg = runLeg(() -> esAsyncClient.search(s -> s
+                .index(indexName)
+                .size(depth)
+                .source(source -> source.filter(f -> f.includes("text", "metadata")))
+                .query(q -> q.bool(b -> b
+                        .must(must -> must.match(match -> match.field("text").query(query)))
+                        .filter(filters))),
+                SegmentDocument.class));
+        SearchLeg vector = vectorLeg.join();
+        SearchLeg lexical = lexicalLeg.join();
+        
+        if (vector.error != null) {
+            log.warn("Vector leg of hybrid search failed: {}", vector.error.getMessage());
+        }
+        if (lexical.error != null) {
+            log.warn("Lexical leg of hybrid search failed: {}", lexical.error.getMessage());
+        }
+        
+        List<EmbeddingMatch<TextSegment>> results = RankFusion.reciprocalRankFusion(
+                List.of(vector.matches, lexical.matches),
+                new double[]{retrievalConfig.getVectorWeight(), retrievalConfig.getLexicalWeight()},
+                retrievalConfig.getRrfRankConstant(), maxResults);
+        log.info("Hybrid search returned {} results in {} ms (vector: {} hits in {} ms, lexical: {} hits in {} ms)",
+                results.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                vector.matches.size(), TimeUnit.NANOSECONDS.toMillis(vector.nanos),
+                lexical.matches.size(), TimeUnit.NANOSECONDS.toMillis(lexical.nanos));
+        return results;
+    }
+    
+    /**
+     * Search for every query in one multi-search request: the kNN search of each query,
+     * followed by its lexical search when hybrid search is enabled
+     */
+    @Override
+    public List<List<EmbeddingMatch<TextSegment>>> searchAll(List<String> queries, List<Embedding> queryEmbeddings,
+                                                             int maxResults, MetadataFilter filter) {
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+        int resultsPerQuery = maxResults > 0 ? maxResults : 5;
+        boolean hybrid = retrievalConfig.isHybridEnabled();
+        int depth = hybrid ? Math.max(resultsPerQuery, retrievalConfig.getCandidatesPerLeg()) : resultsPerQuery;
+        String indexName = config.getIndex();
+        List<Query> filters = toQueries(filter);
+        
+        List<RequestItem> searches = new ArrayList<>();
+        // Position of each query's lexical search in the request, -1 without one
+        int[] lexicalSearch = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            List<Float> queryVector = new ArrayList<>(queryEmbeddings.get(i).vector().length);
+            for (float value : queryEmbeddings.get(i).vector()) {
+                queryVector.add(value);
+            }
+            KnnQuery knn = knnQuery(queryVector, depth, filters);
+            List<Rescore> rescore = rescore(queryVector, depth);
+            searches.add(RequestItem.of(item -> item
+                    .header(header -> header.index(indexName))
+                    .body(body -> {
+                        body.size(depth)
+                                .source(source -> source.filter(f -> f.includes("text", "metadata")))
+                                .knn(knn);
+                        return rescore.isEmpty() ? body : body.rescore(rescore);
+                    })));
+            String query = queries.get(i);
+            lexicalSearch[i] = -1;
+            if (hybrid && query != null && !query.isBlank()) {
+                lexicalSearch[i] = searches.size();
+                searches.add(RequestItem.of(item -> item
+                        .header(header -> header.index(indexName))
+                        .body(body -> body
+                                .size(depth)
+                                .source(source -> source.filter(f -> f.includes("text", "metadata")))
+                                .query(q -> q.bool(b -> b
+                                        .must(must -> must.match(match -> match.field("text").query(query)))
+                                        .filter(filters))))));
+            }
+        }
+        
+        long start = System.nanoTime();
+        List<MultiSearchResponseItem<SegmentDocument>> responses;
+        try {
+            responses = esClient.msearch(m -> m.index(indexName).searches(searches), SegmentDocument.class).responses();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search for " + queries.size() + " queries", e);
+        }
+        
+        List<List<EmbeddingMatch<TextSegment>>> results = new ArrayList<>(queries.size());
+        for (int i = 0, search = 0; i < queries.size(); i++, search++) {
+            List<EmbeddingMatch<TextSegment>> vector = toMatches(responses.get(search));
+            if (lexicalSearch[i] < 0) {
+                results.add(vector.size() > resultsPerQuery ? vector.subList(0, resultsPerQuery) : vector);
+                continue;
+            }
+            List<EmbeddingMatch<TextSegment>> lexical = toMatches(responses.get(++search));
+            results.add(RankFusion.reciprocalRankFusion(List.of(vector, lexical),
+                    new double[]{retrievalConfig.getVectorWeight(), retrievalConfig.getLexicalWeight()},
+                    retrievalConfig.getRrfRankConstant(), resultsPerQuery));
+        }
+        log.info("Multi-search for {} queries ({} searches) took {} ms", queries.size(), searches.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return results;
+    }
+    
+    /**
+     * Approximate kNN search over the HNSW graph. With quantization the graph scores compressed
+     * vectors, so {@code rescoreOversample} times more candidates are collected for
+     * {@link #rescore} to order by the full-precision vectors.
+     */
+    private KnnQuery knnQuery(List<Float> queryVector, int depth, List<Query> filters) {
+        int candidates = rescoreWindow(depth);
+        return KnnQuery.of(knn -> knn
+                .field("vector")
+                .queryVector(queryVector)
+                .k(candidates)
+                .numCandidates(Math.max(candidates, retrievalConfig.getKnnNumCandidates()))
+                .filter(filters));
+    }
+    
+    /**
+     * Exact cosine similarity over the kNN candidates, on the same scale as the kNN score;
+     * empty without quantization, where the graph already scores the full vectors
+     */
+    private List<Rescore> rescore(List<Float> queryVector, int depth) {
+        if (vectorDbConfig.getQuantization() == VectorQuantization.NONE) {
+            return List.of();
+        }
+        return List.of(Rescore.of(rescore -> rescore
+                .windowSize(rescoreWindow(depth))
+                .query(query -> query
+                        .queryWeight(0.0)
+                        .rescoreQueryWeight(1.0)
+                        .query(q -> q.scriptScore(scriptScore -> scriptScore
+                                .query(all -> all.matchAll(m -> m))
+                                .script(script -> script.inline(inline -> inline
+                                        .source("(cosineSimilarity(params.query_vector, 'vector') + 1.0) / 2")
+                                        .params("query_vector", JsonData.of(queryVector)))))))));
+    }
+    
+    private int rescoreWindow(int depth) {
+        return vectorDbConfig.getQuantization() == VectorQuantization.NONE
+                ? depth
+                : depth * Math.max(1, vectorDbConfig.getRescoreOversample());
+    }
+    
+    /**
+     * Matches of one search of a multi-search; a failed search has none
+     */
+    private static List<EmbeddingMatch<TextSegment>> toMatches(MultiSearchResponseItem<SegmentDocument> response) {
+        if (response.isFailure()) {
+            log.warn("Search of a multi-search failed: {}", response.failure().error().reason());
+            return List.of();
+        }
+        return toMatches(response.result());
+    }
+    
+    /**
+     * One terms query per filtered metadata key
+     */
+    private static List<Query> toQueries(MetadataFilter filter) {
+        List<Query> queries = new ArrayList<>();
+        filter.getConditions().forEach((key, values) -> {
+            List<FieldValue> allowed = values.stream().map(FieldValue::of).collect(Collectors.toList());
+            queries.add(Query.of(q -> q.terms(t -> t
+                    .field("metadata." + key)
+                    .terms(terms -> terms.value(allowed)))));
+        });
+        return queries;
+    }
+    
+    /**
+     * Start one search leg; failures are captured in the result rather than thrown
+     */
+    private CompletableFuture<SearchLeg> runLeg(Supplier<CompletableFuture<SearchResponse<SegmentDocument>>> request) {
+        long start = System.nanoTime();
+        try {
+            return request.get().handle((response, error) -> error == null
+                    ? new SearchLeg(toMatches(response), System.nanoTime() - start, null)
+                    : new SearchLeg(List.of(), System.nanoTime() - start, error));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(new SearchLeg(List.of(), System.nanoTime() - start, e));
+        }
+    }
+    
+    private static List<EmbeddingMatch<TextSegment>> toMatches(ResponseBody<SegmentDocument> response) {
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (Hit<SegmentDocument> hit : response.hits().hits()) {
+            SegmentDocument document = hit.source();
+            if (document == null || document.getText() == null) {
+                continue;
+            }
+            Map<String, String> metadata = document.getMetadata() != null ? document.getMetadata() : Map.of();
+            matches.add(new EmbeddingMatch<>(hit.score() != null ? hit.score() : 0.0, hit.id(), null,
+                    TextSegment.from(document.getText(), Metadata.from(metadata))));
+        }
+        return matches;
+    }
+    
+    @Override
+    public Set<String> findSegmentHashes(String documentId) {
+        String indexName = config.getIndex();
+        String hashField = "metadata." + SegmentMetadata.SEGMENT_HASH;
+        Set<String> hashes = new HashSet<>();
+        try {
+            // Page through the document's segments in hash order
+            List<FieldValue> after = null;
+            while (true) {
+                List<FieldValue> searchAfter = after;
+                SearchResponse<SegmentDocument> response = esClient.search(s -> {
+                    s.index(indexName)
+                            .size(LOOKUP_PAGE_SIZE)
+                            .source(source -> source.filter(filter -> filter.includes(hashField)))
+                            .query(q -> q.term(t -> t.field("metadata." + SegmentMetadata.DOCUMENT_ID).value(documentId)))
+                            .sort(sort -> sort.field(field -> field.field(hashField)));
+                    return searchAfter != null ? s.searchAfter(searchAfter) : s;
+                }, SegmentDocument.class);
+                
+                List<Hit<SegmentDocument>> hits = response.hits().hits();
+                for (Hit<SegmentDocument> hit : hits) {
+                    if (hit.source() != null && hit.source().getMetadata() != null) {
+                        hashes.add(hit.source().getMetadata().get(SegmentMetadata.SEGMENT_HASH));
+                    }
+                    after = hit.sort();
+                }
+                if (hits.size() < LOOKUP_PAGE_SIZE) {
+                    return hashes;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to look up segments of document " + documentId, e);
+        }
+    }
+    
+    @Override
+    public void deleteSegments(String documentId, Collection<String> segmentHashes) {
+        if (segmentHashes.isEmpty()) {
+            return;
+        }
+        String indexName = config.getIndex();
+        List<FieldValue> hashes = segmentHashes.stream().map(FieldValue::of).collect(Collectors.toList());
+        long deleted = 0;
+        try {
+            for (int from = 0; from < hashes.size(); from += LOOKUP_PAGE_SIZE) {
+                List<FieldValue> batch = hashes.subList(from, Math.min(from + LOOKUP_PAGE_SIZE, hashes.size()));
+                Long batchDeleted = esClient.deleteByQuery(d -> d
+                        .index(indexName)
+                        .refresh(true)
+                        .query(q -> q.bool(b -> b
+                                .filter(f -> f.term(t -> t.field("metadata." + SegmentMetadata.DOCUMENT_ID).value(documentId)))
+                                .filter(f -> f.terms(t -> t
+                                        .field("metadata." + SegmentMetadata.SEGMENT_HASH)
+                                        .terms(values -> values.value(batch)))))))
+                        .deleted();
+                deleted += batchDeleted != null ? batchDeleted : 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete segments of document " + documentId, e);
+        }
+        log.info("Deleted {} segments of document {} from Elasticsearch", deleted, documentId);
+    }
+    
+    @Override
+    public void deleteDocument(String documentId) {
+        try {
+            Long deleted = esClient.deleteByQuery(d -> d
+                    .index(config.getIndex())
+                    .refresh(true)
+                    .query(q -> q.term(t -> t.field("metadata." + SegmentMetadata.DOCUMENT_ID).value(documentId))))
+                    .deleted();
+            log.info("Deleted document {} ({} segments) from Elasticsearch", documentId, deleted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete document " + documentId, e);
+        }
+    }
+    
     @Override
     public void clearAll() {
         try {
@@ -183,4 +666,16 @@ public class ElasticsearchVectorDbService implements VectorDbService {
             log.error("Error recreating index", e);
         }
     }
+    
+    private static final class SearchLeg {
+        private final List<EmbeddingMatch<TextSegment>> matches;
+        private final long nanos;
+        private final Throwable error;
+        
+        private SearchLeg(List<EmbeddingMatch<TextSegment>> matches, long nanos, Throwable error) {
+            this.matches = matches;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
 }
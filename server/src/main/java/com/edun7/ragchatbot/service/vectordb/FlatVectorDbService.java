@@ -0,0 +1,267 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.VectorDbConfig;
+import com.edun7.ragchatbot.service.embedding.EmbeddingService;
+import com.edun7.ragchatbot.service.embedding.QueryEmbeddingCache;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Vector database held in the JVM that scores every stored vector for each search.
+ * <p>
+ * Enabled with {@code app.vectordb.type=flat}. Results are exact, unlike the approximate
+ * HNSW graph of the {@code local} type, and there is no graph to build, which suits small
+ * and medium corpora. Segments and embeddings persist in the same memory-mapped
+ * {@link MappedSegmentStore}; the vectors are loaded into a {@link FlatVectorIndex} on
+ * startup. Scores use the same (cosine + 1) / 2 scale as the other implementations.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.vectordb.type", havingValue = "flat")
+public class FlatVectorDbService implements VectorDbService {
+
+    private final EmbeddingConfig embeddingConfig;
+    private final EmbeddingService embeddingService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final MappedSegmentStore store;
+    private final SegmentKeys keys;
+    private final ExecutorService scanExecutor;
+    private final FlatVectorIndex index;
+    // Guards appends to the store and the index, which share ids
+    private final Object writeLock = new Object();
+
+    public FlatVectorDbService(VectorDbConfig config, EmbeddingConfig embeddingConfig,
+                               EmbeddingService embeddingService, QueryEmbeddingCache queryEmbeddingCache,
+                               ExecutorFactory executorFactory) throws IOException {
+        this.embeddingConfig = embeddingConfig;
+        this.embeddingService = embeddingService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.store = new MappedSegmentStore(Path.of(config.getDataDir()), config.getDimension());
+        this.keys = new SegmentKeys(store);
+
+        VectorKernel kernel = VectorKernel.create();
+        int threads = config.resolveFlatThreads();
+        this.scanExecutor = threads > 1 ? executorFactory.newCpuExecutor("flat-scan-", threads - 1) : null;
+        this.index = new FlatVectorIndex(config.getDimension(), kernel, scanExecutor, threads,
+                config.getFlatMinVectorsPerThread());
+
+        long start = System.nanoTime();
+        for (int id = 0; id < store.size(); id++) {
+            index.add(store.vector(id));
+        }
+        keys.catchUp();
+        log.info("Flat vector database initialized at {} with {} segments in {} ms ({} kernel, {} scan threads)",
+                store.getDirectory(), store.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                kernel.name(), threads);
+        if ("scalar".equals(kernel.name())) {
+            log.info("Run with --add-modules jdk.incubator.vector to score vectors with SIMD instructions");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (scanExecutor != null) {
+            scanExecutor.shutdownNow();
+        }
+        synchronized (writeLock) {
+            store.close();
+        }
+    }
+
+    @Override
+    public void addSegment(TextSegment segment) {
+        add(embeddingService.embedNow(segment.text()), segment);
+        log.debug("Added segment to flat index: {}", segment.text().substring(0, Math.min(50, segment.text().length())));
+    }
+
+    @Override
+    public void addSegments(List<TextSegment> segments, IndexingProgressListener listener) {
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, embeddingConfig.getBatchSize());
+
+        // Queue every batch with the embedding service up front, then insert them in order as they finish
+        List<List<TextSegment>> batches = new ArrayList<>();
+        List<CompletableFuture<List<Embedding>>> embeddings = new ArrayList<>();
+        for (int from = 0; from < segments.size(); from += batchSize) {
+            List<TextSegment> batch = segments.subList(from, Math.min(from + batchSize, segments.size()));
+            batches.add(batch);
+            embeddings.add(embeddingService.embedAll(batch));
+        }
+
+        try {
+            for (int i = 0; i < batches.size(); i++) {
+                List<TextSegment> batch = batches.get(i);
+                List<Embedding> batchEmbeddings = embeddings.get(i).join();
+                listener.segmentsEmbedded(batch.size());
+                for (int j = 0; j < batch.size(); j++) {
+                    add(batchEmbeddings.get(j), batch.get(j));
+                }
+                listener.segmentsIndexed(batch.size());
+            }
+        } catch (Exception e) {
+            embeddings.forEach(future -> future.cancel(false));
+            throw new RuntimeException("Failed to index segments", e);
+        } finally {
+            store.flush();
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Added {} segments to the flat index in {} batches ({} ms, {} segments/s)",
+                segments.size(), batches.size(), elapsedMillis,
+                String.format("%.1f", segments.size() * 1000.0 / elapsedMillis));
+    }
+
+    private void add(Embedding embedding, TextSegment segment) {
+        float[] vector = VectorKernel.normalize(embedding.vector());
+        synchronized (writeLock) {
+            store.append(vector, segment);
+            index.add(vector);
+            keys.catchUp();
+        }
+    }
+
+    @Override
+    public Embedding embedQuery(String query) {
+        return queryEmbeddingCache.get(query, embeddingService::embedQuery);
+    }
+
+    @Override
+    public List<Embedding> embedQueries(List<String> queries) {
+        // Embed every query the cache misses in one batch
+        return queryEmbeddingCache.getAll(queries, texts -> embeddingService.embedAll(
+                texts.stream().map(TextSegment::from).collect(Collectors.toList())).join());
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, int maxResults) {
+        try {
+            log.debug("Searching for '{}' with maxResults={}", query, maxResults);
+            List<EmbeddingMatch<TextSegment>> results = search(embedQuery(query), maxResults);
+            log.debug("Search for '{}' returned {} results", query, results.size());
+            return results;
+        } catch (Exception e) {
+            log.error("Error during vector search: {}", e.getMessage(), e);
+            return List.of();
+        }
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults) {
+        return search(queryEmbedding, maxResults, MetadataFilter.NONE);
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults,
+                                                    MetadataFilter filter) {
+        return search(queryEmbedding, maxResults, filter);
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults, MetadataFilter filter) {
+        if (maxResults <= 0) {
+            maxResults = 5;
+        }
+
+        float[] query = VectorKernel.normalize(queryEmbedding.vector());
+        // Only checked for vectors that score high enough to enter the results
+        IntPredicate matcher = filter.isEmpty() ? null : keys.matcher(filter);
+        IntPredicate accept = matcher == null
+                ? id -> !store.isDeleted(id)
+                : id -> !store.isDeleted(id) && matcher.test(id);
+        List<EmbeddingMatch<TextSegment>> results = new ArrayList<>();
+        try {
+            for (HnswIndex.Hit hit : index.search(query, maxResults, accept)) {
+                results.add(new EmbeddingMatch<>(
+                        RelevanceScore.fromCosineSimilarity(hit.score()),
+                        Integer.toString(hit.node()),
+                        Embedding.from(store.vector(hit.node())),
+                        store.segment(hit.node())));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            return List.of(); // Cleared while searching
+        }
+        return results;
+    }
+
+    @Override
+    public Set<String> findSegmentHashes(String documentId) {
+        Set<String> hashes = new HashSet<>();
+        int count = store.size();
+        try {
+            for (int id = 0; id < count; id++) {
+                if (!store.isDeleted(id) && documentId.equals(keys.documentId(id))) {
+                    hashes.add(keys.segmentHash(id));
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            return Set.of(); // Cleared while scanning
+        }
+        return hashes;
+    }
+
+    @Override
+    public void deleteSegments(String documentId, Collection<String> segmentHashes) {
+        if (segmentHashes.isEmpty()) {
+            return;
+        }
+        Set<String> stale = new HashSet<>(segmentHashes);
+        int deleted = deleteMatching(id -> documentId.equals(keys.documentId(id)) && stale.contains(keys.segmentHash(id)));
+        log.info("Deleted {} segments of document {} from the flat index", deleted, documentId);
+    }
+
+    @Override
+    public void deleteDocument(String documentId) {
+        int deleted = deleteMatching(id -> documentId.equals(keys.documentId(id)));
+        log.info("Deleted document {} ({} segments) from the flat index", documentId, deleted);
+    }
+
+    private int deleteMatching(IntPredicate condition) {
+        int deleted = 0;
+        synchronized (writeLock) {
+            for (int id = 0; id < store.size(); id++) {
+                if (!store.isDeleted(id) && condition.test(id)) {
+                    // Searches skip deleted records, the vector stays in the index
+                    store.markDeleted(id);
+                    deleted++;
+                }
+            }
+            store.flush();
+        }
+        return deleted;
+    }
+
+    @Override
+    public void clearAll() {
+        synchronized (writeLock) {
+            store.clear();
+            keys.clear();
+            index.clear();
+            store.flush();
+        }
+        log.info("Cleared all segments from the flat index");
+    }
+}
@@ -0,0 +1,135 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntPredicate;
+
+/**
+ * Exact nearest-neighbor search by scoring every vector.
+ * <p>
+ * Vectors are copied into blocks of {@value #BLOCK_VECTORS} packed back to back in one
+ * {@code float[]}, so a scan streams through contiguous memory with the {@link VectorKernel}.
+ * Each block is scored in small batches into a scratch array, and only scores that beat the
+ * current k-th best are checked against the filter and offered to a bounded heap. Large
+ * indexes are split into ranges scanned in parallel, with the caller scanning the last range
+ * itself, and the per-range results are merged.
+ * <p>
+ * Appends must not run concurrently with each other, searches may run alongside them.
+ */
+final class FlatVectorIndex {
+
+    private static final int BLOCK_VECTORS = 4096;
+    // Scores computed per kernel call, small enough to stay in the L1 cache
+    private static final int SCORE_BATCH = 256;
+
+    private final int dimension;
+    private final VectorKernel kernel;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int minVectorsPerTask;
+    private volatile float[][] blocks = new float[0][];
+    private volatile int size;
+
+    /**
+     * @param executor          pool for parallel scans, or null to always scan on the caller
+     * @param parallelism       maximum number of ranges a search is split into
+     * @param minVectorsPerTask smallest range worth handing to another thread
+     */
+    FlatVectorIndex(int dimension, VectorKernel kernel, ExecutorService executor, int parallelism,
+                    int minVectorsPerTask) {
+        this.dimension = dimension;
+        this.kernel = kernel;
+        this.executor = executor;
+        this.parallelism = executor == null ? 1 : Math.max(1, parallelism);
+        this.minVectorsPerTask = Math.max(1, minVectorsPerTask);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Append a vector and return its id, which counts up from zero
+     */
+    int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension + " but got " + vector.length);
+        }
+        int id = size;
+        float[][] current = blocks;
+        int block = id / BLOCK_VECTORS;
+        if (block == current.length) {
+            current = Arrays.copyOf(current, block + 1);
+            current[block] = new float[BLOCK_VECTORS * dimension];
+            blocks = current;
+        }
+        System.arraycopy(vector, 0, current[block], (id % BLOCK_VECTORS) * dimension, dimension);
+        size = id + 1; // Publishes the vector to searches
+        return id;
+    }
+
+    void clear() {
+        size = 0;
+        blocks = new float[0][];
+    }
+
+    /**
+     * Return the {@code k} vectors accepted by {@code accept} closest to the query, best first.
+     * The filter is only consulted for vectors that score high enough to enter the results.
+     */
+    List<HnswIndex.Hit> search(float[] query, int k, IntPredicate accept) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected a query of dimension " + dimension + " but got " + query.length);
+        }
+        float[][] current = blocks;
+        int count = Math.min(size, current.length * BLOCK_VECTORS);
+        if (count == 0 || k <= 0) {
+            return List.of();
+        }
+
+        int tasks = Math.min(parallelism, count / minVectorsPerTask);
+        if (tasks <= 1) {
+            return scan(current, query, 0, count, k, accept).toHits();
+        }
+        int perTask = (count + tasks - 1) / tasks;
+        List<CompletableFuture<TopKHeap>> ranges = new ArrayList<>(tasks - 1);
+        for (int from = 0; from + perTask < count; from += perTask) {
+            int rangeStart = from;
+            ranges.add(CompletableFuture.supplyAsync(
+                    () -> scan(current, query, rangeStart, rangeStart + perTask, k, accept), executor));
+        }
+        // The caller scans the last range itself instead of just waiting
+        TopKHeap best = scan(current, query, ranges.size() * perTask, count, k, accept);
+        try {
+            for (CompletableFuture<TopKHeap> range : ranges) {
+                best.addAll(range.join());
+            }
+        } catch (CompletionException e) {
+            ranges.forEach(range -> range.cancel(false));
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return best.toHits();
+    }
+
+    private TopKHeap scan(float[][] blocks, float[] query, int from, int to, int k, IntPredicate accept) {
+        TopKHeap best = new TopKHeap(k);
+        float[] scores = new float[SCORE_BATCH];
+        for (int start = from; start < to; ) {
+            float[] block = blocks[start / BLOCK_VECTORS];
+            int inBlock = start % BLOCK_VECTORS;
+            int batch = Math.min(SCORE_BATCH, Math.min(to - start, BLOCK_VECTORS - inBlock));
+            kernel.dotAll(query, block, inBlock * dimension, batch, scores);
+            for (int i = 0; i < batch; i++) {
+                if (best.accepts(scores[i]) && (accept == null || accept.test(start + i))) {
+                    best.offer(start + i, scores[i]);
+                }
+            }
+            start += batch;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,451 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph over unit-length float vectors.
+ * <p>
+ * The graph only holds neighbor lists, in plain {@code int[]} arrays so nothing is boxed;
+ * vectors are read in place from a {@link VectorStorage} whose record ids are the node ids.
+ * Scores are dot products, which equal cosine similarity for normalized vectors. Searches
+ * run concurrently under a read lock while inserts take the write lock. Removed nodes stay
+ * in the graph as tombstones: they still route searches but are never returned.
+ */
+public final class HnswIndex {
+
+    private final VectorStorage storage;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // neighbors[node][level] = {count, neighbor1, neighbor2, ...}
+    private int[][][] neighbors;
+    private final BitSet deleted = new BitSet();
+    private int deletedCount;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(VectorStorage storage, int m, int efConstruction, int initialCapacity) {
+        if (m < 2 || efConstruction <= 0) {
+            throw new IllegalArgumentException("Invalid HNSW parameters: m=" + m + ", efConstruction=" + efConstruction);
+        }
+        this.storage = storage;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.neighbors = new int[Math.max(16, initialCapacity)][][];
+    }
+
+    /**
+     * Link a stored record into the graph. Records must be added in id order starting from 0.
+     */
+    public void add(int node) {
+        lock.writeLock().lock();
+        try {
+            if (node != size) {
+                throw new IllegalStateException("Expected node " + size + " but got " + node);
+            }
+            ensureCapacity(node + 1);
+
+            int level = randomLevel();
+            int[][] layers = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                layers[l] = new int[maxConnections(l) + 1];
+            }
+            neighbors[node] = layers;
+            size++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            VectorStorage.QueryScorer scorer = other -> storage.dot(node, other);
+            int current = greedyDescend(scorer, entryPoint, maxLevel, level);
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                NodeHeap candidates = searchLayer(scorer, current, efConstruction, l, null);
+                int closest = candidates.bestNode();
+                int[] selected = selectNeighbors(candidates, maxConnections(l));
+                int[] links = layers[l];
+                for (int neighbor : selected) {
+                    links[++links[0]] = neighbor;
+                    connect(neighbor, node, l);
+                }
+                current = closest;
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the {@code k} live nodes closest to the query, best first
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        return search(query, k, ef, null);
+    }
+
+    /**
+     * Return the {@code k} live nodes accepted by {@code filter} closest to the query, best first.
+     * Rejected nodes still route the search, so the graph stays connected however selective
+     * the filter is; a very selective filter makes the search visit most of the graph.
+     */
+    public List<Hit> search(float[] query, int k, int ef, IntPredicate filter) {
+        checkDimension(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            VectorStorage.QueryScorer scorer = storage.scorer(query);
+            int current = greedyDescend(scorer, entryPoint, maxLevel, 0);
+            IntPredicate accept = filter == null
+                    ? node -> !deleted.get(node)
+                    : node -> !deleted.get(node) && filter.test(node);
+            NodeHeap results = searchLayer(scorer, current, Math.max(ef, k), 0, accept);
+            while (results.size() > k) {
+                results.pop();
+            }
+            Hit[] hits = new Hit[results.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                float score = results.peekScore();
+                hits[i] = new Hit(results.pop(), score);
+            }
+            return Arrays.asList(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hide a node from search results; it keeps routing searches through the graph
+     */
+    public void markDeleted(int node) {
+        lock.writeLock().lock();
+        try {
+            if (node >= 0 && node < size && !deleted.get(node)) {
+                deleted.set(node);
+                deletedCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isDeleted(int node) {
+        lock.readLock().lock();
+        try {
+            return deleted.get(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(neighbors, 0, size, null);
+            deleted.clear();
+            deletedCount = 0;
+            size = 0;
+            entryPoint = -1;
+            maxLevel = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of nodes in the graph, including tombstones
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of nodes that can still be returned by a search
+     */
+    public int liveCount() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int greedyDescend(VectorStorage.QueryScorer scorer, int start, int fromLevel, int toLevel) {
+        int current = start;
+        float currentScore = scorer.score(current);
+        for (int l = fromLevel; l > toLevel; l--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[][] layers = neighbors[current];
+                if (l >= layers.length) {
+                    break;
+                }
+                int[] links = layers[l];
+                for (int i = 1; i <= links[0]; i++) {
+                    float s = scorer.score(links[i]);
+                    if (s > currentScore) {
+                        current = links[i];
+                        currentScore = s;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer. Returns a min-heap holding at most {@code ef} nodes,
+     * only nodes passing {@code accept} when it is given.
+     */
+    private NodeHeap searchLayer(VectorStorage.QueryScorer scorer, int entry, int ef, int level, IntPredicate accept) {
+        BitSet visited = new BitSet(size);
+        NodeHeap candidates = new NodeHeap(ef, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+
+        float entryScore = scorer.score(entry);
+        visited.set(entry);
+        candidates.push(entry, entryScore);
+        if (accept == null || accept.test(entry)) {
+            results.push(entry, entryScore);
+        }
+
+        while (candidates.size() > 0) {
+            float candidateScore = candidates.peekScore();
+            if (results.size() >= ef && candidateScore < results.peekScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] links = neighbors[candidate][level];
+            for (int i = 1; i <= links[0]; i++) {
+                int neighbor = links[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float s = scorer.score(neighbor);
+                if (results.size() < ef || s > results.peekScore()) {
+                    candidates.push(neighbor, s);
+                    if (accept == null || accept.test(neighbor)) {
+                        results.push(neighbor, s);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbor selection heuristic: keep a candidate only if it is closer to the base node
+     * than to every neighbor already kept, which spreads links across directions.
+     */
+    private int[] selectNeighbors(NodeHeap candidates, int maxCount) {
+        int count = candidates.size();
+        int[] nodes = new int[count];
+        float[] scores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            scores[i] = candidates.peekScore();
+            nodes[i] = candidates.pop();
+        }
+
+        int[] selected = new int[Math.min(count, maxCount)];
+        int selectedCount = 0;
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (score(nodes[i], selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = nodes[i];
+            }
+        }
+        return Arrays.copyOf(selected, selectedCount);
+    }
+
+    /**
+     * Add a back link from {@code node} to {@code newNeighbor}, pruning when the list is full
+     */
+    private void connect(int node, int newNeighbor, int level) {
+        int[] links = neighbors[node][level];
+        int maxCount = links.length - 1;
+        if (links[0] < maxCount) {
+            links[++links[0]] = newNeighbor;
+            return;
+        }
+
+        NodeHeap candidates = new NodeHeap(maxCount + 1, false);
+        candidates.push(newNeighbor, score(node, newNeighbor));
+        for (int i = 1; i <= links[0]; i++) {
+            candidates.push(links[i], score(node, links[i]));
+        }
+        int[] selected = selectNeighbors(candidates, maxCount);
+        System.arraycopy(selected, 0, links, 1, selected.length);
+        links[0] = selected.length;
+    }
+
+    private float score(int a, int b) {
+        return storage.dot(a, b);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= neighbors.length) {
+            return;
+        }
+        int capacity = Math.max(nodes, neighbors.length + (neighbors.length >> 1));
+        neighbors = Arrays.copyOf(neighbors, capacity);
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != storage.dimension()) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + storage.dimension()
+                    + " but got " + vector.length);
+        }
+    }
+
+    /**
+     * A search result: node id and dot-product score
+     */
+    public static final class Hit {
+        private final int node;
+        private final float score;
+
+        Hit(int node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+
+        public int node() {
+            return node;
+        }
+
+        public float score() {
+            return score;
+        }
+    }
+
+    /**
+     * Binary heap of (node, score) pairs on parallel primitive arrays
+     */
+    private static final class NodeHeap {
+        private final boolean maxHeap;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int capacity, boolean maxHeap) {
+            this.maxHeap = maxHeap;
+            this.nodes = new int[Math.max(4, capacity)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            int lastNode = nodes[size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        /**
+         * Node with the highest score, which for a min-heap means a scan over the leaves
+         */
+        int bestNode() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            return nodes[best];
+        }
+
+        private boolean before(float a, float b) {
+            return maxHeap ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+/**
+ * Receives progress callbacks while segments are embedded and indexed.
+ * Callbacks may arrive concurrently from several ingestion workers.
+ */
+public interface IndexingProgressListener {
+
+    IndexingProgressListener NONE = new IndexingProgressListener() {
+    };
+
+    /**
+     * Called after a batch of segments has been embedded
+     */
+    default void segmentsEmbedded(int count) {
+    }
+
+    /**
+     * Called after a batch of segments has been written to the vector database
+     */
+    default void segmentsIndexed(int count) {
+    }
+}
@@ -0,0 +1,359 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import com.edun7.ragchatbot.config.VectorDbConfig;
+import com.edun7.ragchatbot.config.VectorQuantization;
+import com.edun7.ragchatbot.service.embedding.EmbeddingService;
+import com.edun7.ragchatbot.service.embedding.QueryEmbeddingCache;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Vector database held entirely in the JVM, backed by an HNSW graph.
+ * <p>
+ * Enabled with {@code app.vectordb.type=local}. Searches never leave the process, so there
+ * is no Elasticsearch round trip. Segments and embeddings persist in a memory-mapped
+ * {@link MappedSegmentStore}; on startup the store opens immediately and the graph is
+ * rebuilt from it in the background, with exact scans over the mapped vectors answering
+ * searches until the graph has caught up. With {@code app.vectordb.quantization} set, the
+ * graph is walked over compact int8 or binary codes held in memory and an oversampled
+ * candidate list is re-scored against the full-precision vectors. Scores use the same
+ * (cosine + 1) / 2 scale as the Elasticsearch store so both implementations rank and cache
+ * answers identically.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.vectordb.type", havingValue = "local")
+public class LocalVectorDbService implements VectorDbService {
+
+    private final VectorDbConfig config;
+    private final EmbeddingConfig embeddingConfig;
+    private final EmbeddingService embeddingService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final MappedSegmentStore store;
+    private final SegmentKeys keys;
+    // Compact codes the graph is walked over, null without quantization
+    private final QuantizedVectorStorage codes;
+    private final HnswIndex index;
+    // Guards appends to the store and linking records into the graph, which share ids
+    private final Object writeLock = new Object();
+    private final Thread rebuildThread;
+    private volatile boolean running = true;
+
+    public LocalVectorDbService(VectorDbConfig config, EmbeddingConfig embeddingConfig,
+                                EmbeddingService embeddingService, QueryEmbeddingCache queryEmbeddingCache)
+            throws IOException {
+        this.config = config;
+        this.embeddingConfig = embeddingConfig;
+        this.embeddingService = embeddingService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.store = new MappedSegmentStore(Path.of(config.getDataDir()), config.getDimension());
+        this.keys = new SegmentKeys(store);
+        this.codes = config.getQuantization() == VectorQuantization.NONE
+                ? null
+                : new QuantizedVectorStorage(store, config.getQuantization());
+        this.index = new HnswIndex(codes != null ? codes : store, config.getHnswM(), config.getHnswEfConstruction(),
+                Math.max(config.getInitialCapacity(), store.size()));
+        log.info("Local HNSW vector database initialized at {} with {} segments (m={}, efConstruction={}, efSearch={}, quantization={})",
+                store.getDirectory(), store.size(), config.getHnswM(), config.getHnswEfConstruction(),
+                config.getHnswEfSearch(), config.getQuantization());
+
+        this.rebuildThread = new Thread(this::rebuildIndex, "hnsw-rebuild");
+        this.rebuildThread.setDaemon(true);
+        this.rebuildThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        rebuildThread.join(TimeUnit.SECONDS.toMillis(5));
+        synchronized (writeLock) {
+            store.close();
+        }
+    }
+
+    /**
+     * Link every stored record into the graph that is not in it yet
+     */
+    private void rebuildIndex() {
+        long start = System.nanoTime();
+        int linked = 0;
+        while (running) {
+            synchronized (writeLock) {
+                int next = index.size();
+                if (next >= store.size()) {
+                    break;
+                }
+                keys.catchUp();
+                if (codes != null) {
+                    codes.catchUp();
+                }
+                index.add(next);
+                if (store.isDeleted(next)) {
+                    index.markDeleted(next);
+                }
+            }
+            linked++;
+        }
+        if (linked > 0) {
+            log.info("Rebuilt HNSW graph over {} stored segments in {} ms", linked,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        if (codes != null) {
+            log.info("Graph vectors use {} bytes each ({} KB in memory), full-precision vectors use {} bytes",
+                    codes.bytesPerVector(), (long) codes.size() * codes.bytesPerVector() / 1024,
+                    config.getDimension() * Float.BYTES);
+        }
+    }
+
+    @Override
+    public void addSegment(TextSegment segment) {
+        add(embeddingService.embedNow(segment.text()), segment);
+        log.debug("Added segment to local index: {}", segment.text().substring(0, Math.min(50, segment.text().length())));
+    }
+
+    @Override
+    public void addSegments(List<TextSegment> segments, IndexingProgressListener listener) {
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int batchSize = Math.max(1, embeddingConfig.getBatchSize());
+
+        // Queue every batch with the embedding service up front, then insert them in order as they finish
+        List<List<TextSegment>> batches = new ArrayList<>();
+        List<CompletableFuture<List<Embedding>>> embeddings = new ArrayList<>();
+        for (int from = 0; from < segments.size(); from += batchSize) {
+            List<TextSegment> batch = segments.subList(from, Math.min(from + batchSize, segments.size()));
+            batches.add(batch);
+            embeddings.add(embeddingService.embedAll(batch));
+        }
+
+        try {
+            for (int i = 0; i < batches.size(); i++) {
+                List<TextSegment> batch = batches.get(i);
+                List<Embedding> batchEmbeddings = embeddings.get(i).join();
+                listener.segmentsEmbedded(batch.size());
+                for (int j = 0; j < batch.size(); j++) {
+                    add(batchEmbeddings.get(j), batch.get(j));
+                }
+                listener.segmentsIndexed(batch.size());
+            }
+        } catch (Exception e) {
+            embeddings.forEach(future -> future.cancel(false));
+            throw new RuntimeException("Failed to index segments", e);
+        } finally {
+            store.flush();
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Added {} segments to the local index in {} batches ({} ms, {} segments/s)",
+                segments.size(), batches.size(), elapsedMillis,
+                String.format("%.1f", segments.size() * 1000.0 / elapsedMillis));
+    }
+
+    private void add(Embedding embedding, TextSegment segment) {
+        float[] vector = VectorKernel.normalize(embedding.vector());
+        synchronized (writeLock) {
+            int id = store.append(vector, segment);
+            keys.catchUp();
+            // While the graph is still being rebuilt, the rebuild thread links this record too
+            if (index.size() == id) {
+                if (codes != null) {
+                    codes.catchUp();
+                }
+                index.add(id);
+            }
+        }
+    }
+
+    @Override
+    public Embedding embedQuery(String query) {
+        return queryEmbeddingCache.get(query, embeddingService::embedQuery);
+    }
+
+    @Override
+    public List<Embedding> embedQueries(List<String> queries) {
+        // Embed every query the cache misses in one batch
+        return queryEmbeddingCache.getAll(queries, texts -> embeddingService.embedAll(
+                texts.stream().map(TextSegment::from).collect(Collectors.toList())).join());
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, int maxResults) {
+        try {
+            log.debug("Searching for '{}' with maxResults={}", query, maxResults);
+            List<EmbeddingMatch<TextSegment>> results = search(embedQuery(query), maxResults);
+            log.debug("Search for '{}' returned {} results", query, results.size());
+            return results;
+        } catch (Exception e) {
+            log.error("Error during vector search: {}", e.getMessage(), e);
+            return List.of();
+        }
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults) {
+        return search(queryEmbedding, maxResults, MetadataFilter.NONE);
+    }
+
+    @Override
+    public List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults,
+                                                    MetadataFilter filter) {
+        return search(queryEmbedding, maxResults, filter);
+    }
+
+    private List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults, MetadataFilter filter) {
+        if (maxResults <= 0) {
+            maxResults = 5;
+        }
+
+        float[] query = VectorKernel.normalize(queryEmbedding.vector());
+        // Checked on the nodes the graph search reaches, not on its results
+        IntPredicate accept = filter.isEmpty() ? null : keys.matcher(filter);
+        List<EmbeddingMatch<TextSegment>> results = new ArrayList<>();
+        try {
+            List<HnswIndex.Hit> hits;
+            if (index.size() < store.size()) {
+                hits = exactSearch(query, maxResults, accept);
+            } else if (codes == null) {
+                hits = index.search(query, maxResults, config.getHnswEfSearch(), accept);
+            } else {
+                // Oversample with the approximate scores, then keep the best by exact score
+                int candidates = maxResults * Math.max(1, config.getRescoreOversample());
+                hits = rescore(query, index.search(query, candidates, Math.max(config.getHnswEfSearch(), candidates), accept), maxResults);
+            }
+
+            for (HnswIndex.Hit hit : hits) {
+                results.add(new EmbeddingMatch<>(
+                        RelevanceScore.fromCosineSimilarity(hit.score()),
+                        Integer.toString(hit.node()),
+                        Embedding.from(store.vector(hit.node())),
+                        store.segment(hit.node())));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            return List.of(); // Cleared while searching
+        }
+        return results;
+    }
+
+    private List<HnswIndex.Hit> rescore(float[] query, List<HnswIndex.Hit> candidates, int maxResults) {
+        List<HnswIndex.Hit> rescored = new ArrayList<>(candidates.size());
+        for (HnswIndex.Hit candidate : candidates) {
+            rescored.add(new HnswIndex.Hit(candidate.node(), store.dot(query, candidate.node())));
+        }
+        rescored.sort(Comparator.comparingDouble(HnswIndex.Hit::score).reversed());
+        return rescored.size() > maxResults ? rescored.subList(0, maxResults) : rescored;
+    }
+
+    /**
+     * Score every live record, used while the graph is still being rebuilt
+     */
+    private List<HnswIndex.Hit> exactSearch(float[] query, int maxResults, IntPredicate accept) {
+        PriorityQueue<HnswIndex.Hit> best = new PriorityQueue<>(Comparator.comparingDouble(HnswIndex.Hit::score));
+        int count = store.size();
+        for (int id = 0; id < count; id++) {
+            if (store.isDeleted(id) || accept != null && !accept.test(id)) {
+                continue;
+            }
+            float score = store.dot(query, id);
+            if (best.size() < maxResults) {
+                best.add(new HnswIndex.Hit(id, score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new HnswIndex.Hit(id, score));
+            }
+        }
+        List<HnswIndex.Hit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(HnswIndex.Hit::score).reversed());
+        return hits;
+    }
+
+    @Override
+    public Set<String> findSegmentHashes(String documentId) {
+        Set<String> hashes = new HashSet<>();
+        int count = store.size();
+        try {
+            for (int id = 0; id < count; id++) {
+                if (!store.isDeleted(id) && documentId.equals(keys.documentId(id))) {
+                    hashes.add(keys.segmentHash(id));
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            return Set.of(); // Cleared while scanning
+        }
+        return hashes;
+    }
+    
+    @Override
+    public void deleteSegments(String documentId, Collection<String> segmentHashes) {
+        if (segmentHashes.isEmpty()) {
+            return;
+        }
+        Set<String> stale = new HashSet<>(segmentHashes);
+        int deleted = deleteMatching(id -> documentId.equals(keys.documentId(id)) && stale.contains(keys.segmentHash(id)));
+        log.info("Deleted {} segments of document {} from the local index", deleted, documentId);
+    }
+
+    @Override
+    public void deleteDocument(String documentId) {
+        int deleted = deleteMatching(id -> documentId.equals(keys.documentId(id)));
+        log.info("Deleted document {} ({} segments) from the local index", documentId, deleted);
+    }
+
+    private int deleteMatching(IntPredicate condition) {
+        int deleted = 0;
+        synchronized (writeLock) {
+            for (int id = 0; id < store.size(); id++) {
+                if (store.isDeleted(id)) {
+                    continue;
+                }
+                if (condition.test(id)) {
+                    store.markDeleted(id);
+                    // Records the rebuild has not reached yet are skipped when it links them
+                    if (id < index.size()) {
+                        index.markDeleted(id);
+                    }
+                    deleted++;
+                }
+            }
+            store.flush();
+        }
+        return deleted;
+    }
+    
+    @Override
+    public void clearAll() {
+        synchronized (writeLock) {
+            store.clear();
+            keys.clear();
+            if (codes != null) {
+                codes.clear();
+            }
+            index.clear();
+            store.flush();
+        }
+        log.info("Cleared all segments from the local index");
+    }
+}
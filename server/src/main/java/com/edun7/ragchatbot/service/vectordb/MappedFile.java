@@ -0,0 +1,101 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * File mapped into memory in fixed-size little-endian chunks, so it can grow past the 2 GB
+ * limit of a single mapping. Chunks are mapped on first use and extend the file as needed.
+ * Callers keep records inside one chunk, see {@link #align(long, int)}.
+ */
+final class MappedFile implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int chunkSize;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    MappedFile(Path path, int chunkSize) throws IOException {
+        this.path = path;
+        this.chunkSize = chunkSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * First position at or after {@code position} where {@code length} bytes fit in one chunk
+     */
+    long align(long position, int length) {
+        if (length > chunkSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the chunk size of " + path);
+        }
+        long offset = position % chunkSize;
+        return offset + length <= chunkSize ? position : position - offset + chunkSize;
+    }
+
+    /**
+     * Little-endian view of {@code length} bytes at {@code position}, sharing memory with the file
+     */
+    ByteBuffer slice(long position, int length) {
+        int offset = (int) (position % chunkSize);
+        if (offset + length > chunkSize) {
+            throw new IllegalArgumentException("Record at " + position + " crosses a chunk boundary of " + path);
+        }
+        return chunk((int) (position / chunkSize)).slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * The whole chunk with the given index, for absolute reads without creating a slice
+     */
+    ByteBuffer chunk(int index) {
+        MappedByteBuffer[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index < current.length && current[index] != null) {
+                return current[index];
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(current, Math.max(current.length, index + 1));
+            try {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkSize, chunkSize);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                grown[index] = chunk;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map " + path, e);
+            }
+            chunks = grown;
+            return grown[index];
+        }
+    }
+
+    /**
+     * Write modified pages back to disk
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                chunk.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
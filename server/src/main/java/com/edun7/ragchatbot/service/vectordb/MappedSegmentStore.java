@@ -0,0 +1,255 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only store for segments and their embeddings in memory-mapped files.
+ * <p>
+ * {@code vectors.dat} holds one fixed-size float record per segment, {@code segments.dat}
+ * the text and metadata, and {@code records.idx} is the offset index: a header followed by
+ * one entry per record with the position and length of its segment bytes and a deleted
+ * flag. The committed record count in the header is written last, so an interrupted append
+ * leaves the store at the previous record. Opening a store maps the files without reading
+ * them, and vectors are scored in place without being copied onto the heap.
+ */
+public final class MappedSegmentStore implements VectorStorage, Closeable {
+
+    private static final int MAGIC = 0x52414756;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+    private static final int INDEX_CHUNK_BYTES = 16 << 20;
+    private static final int SEGMENT_CHUNK_BYTES = 64 << 20;
+    private static final int VECTORS_PER_CHUNK = 16384;
+    private static final int DELETED = 1;
+
+    private final Path directory;
+    private final int dimension;
+    private final int vectorBytes;
+    private final MappedFile vectors;
+    private final MappedFile segments;
+    private final MappedFile index;
+    private final ByteBuffer header;
+
+    private volatile int size;
+    private long segmentsEnd;
+
+    public MappedSegmentStore(Path directory, int dimension) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.dimension = dimension;
+        this.vectorBytes = dimension * Float.BYTES;
+        this.vectors = new MappedFile(directory.resolve("vectors.dat"), VECTORS_PER_CHUNK * vectorBytes);
+        this.segments = new MappedFile(directory.resolve("segments.dat"), SEGMENT_CHUNK_BYTES);
+        this.index = new MappedFile(directory.resolve("records.idx"), INDEX_CHUNK_BYTES);
+        this.header = index.slice(0, HEADER_BYTES);
+
+        int magic = header.getInt(0);
+        if (magic == 0) {
+            header.putInt(4, VERSION).putInt(8, dimension).putLong(16, 0).putLong(24, 0);
+            header.putInt(0, MAGIC);
+        } else if (magic != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a segment store: " + directory);
+        } else if (header.getInt(8) != dimension) {
+            throw new IOException("Segment store " + directory + " holds vectors of dimension "
+                    + header.getInt(8) + ", expected " + dimension);
+        } else {
+            this.size = (int) header.getLong(16);
+            this.segmentsEnd = header.getLong(24);
+        }
+    }
+
+    /**
+     * Append a segment with its embedding and return the new record id
+     */
+    public synchronized int append(float[] vector, TextSegment segment) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension + " but got " + vector.length);
+        }
+        int id = size;
+
+        ByteBuffer vectorRecord = vectors.slice((long) id * vectorBytes, vectorBytes);
+        for (float value : vector) {
+            vectorRecord.putFloat(value);
+        }
+
+        byte[] segmentRecord = encode(segment);
+        long position = segments.align(segmentsEnd, segmentRecord.length);
+        segments.slice(position, segmentRecord.length).put(segmentRecord);
+
+        index.slice(entryPosition(id), ENTRY_BYTES)
+                .putLong(0, position)
+                .putInt(8, segmentRecord.length)
+                .putInt(12, 0);
+
+        // Commit: the record becomes visible once the count covers it
+        segmentsEnd = position + segmentRecord.length;
+        header.putLong(24, segmentsEnd);
+        header.putLong(16, id + 1);
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Number of records, including deleted ones
+     */
+    public int size() {
+        return size;
+    }
+
+    public TextSegment segment(int id) {
+        ByteBuffer entry = entry(id);
+        return decode(segments.slice(entry.getLong(0), entry.getInt(8)));
+    }
+
+    public void markDeleted(int id) {
+        synchronized (this) {
+            ByteBuffer entry = entry(id);
+            entry.putInt(12, entry.getInt(12) | DELETED);
+        }
+    }
+
+    public boolean isDeleted(int id) {
+        return (entry(id).getInt(12) & DELETED) != 0;
+    }
+
+    /**
+     * Drop all records. The files keep their size and are overwritten by later appends.
+     */
+    public synchronized void clear() {
+        segmentsEnd = 0;
+        header.putLong(24, 0);
+        header.putLong(16, 0);
+        size = 0;
+    }
+
+    /**
+     * Write all appended records to disk
+     */
+    public void flush() {
+        vectors.force();
+        segments.force();
+        index.force();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] vector(int id) {
+        checkId(id);
+        long position = (long) id * vectorBytes;
+        ByteBuffer chunk = vectors.chunk((int) (position / vectors.chunkSize()));
+        int offset = (int) (position % vectors.chunkSize());
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = chunk.getFloat(offset + i * Float.BYTES);
+        }
+        return vector;
+    }
+
+    @Override
+    public float dot(float[] query, int id) {
+        long position = (long) id * vectorBytes;
+        ByteBuffer chunk = vectors.chunk((int) (position / vectors.chunkSize()));
+        int offset = (int) (position % vectors.chunkSize());
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * chunk.getFloat(offset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        long positionA = (long) a * vectorBytes;
+        long positionB = (long) b * vectorBytes;
+        ByteBuffer chunkA = vectors.chunk((int) (positionA / vectors.chunkSize()));
+        ByteBuffer chunkB = vectors.chunk((int) (positionB / vectors.chunkSize()));
+        int offsetA = (int) (positionA % vectors.chunkSize());
+        int offsetB = (int) (positionB % vectors.chunkSize());
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += chunkA.getFloat(offsetA + i * Float.BYTES) * chunkB.getFloat(offsetB + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectors.close();
+        segments.close();
+        index.close();
+    }
+
+    private ByteBuffer entry(int id) {
+        checkId(id);
+        return index.slice(entryPosition(id), ENTRY_BYTES);
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No record " + id + " in " + directory);
+        }
+    }
+
+    private static long entryPosition(int id) {
+        return HEADER_BYTES + (long) id * ENTRY_BYTES;
+    }
+
+    private static byte[] encode(TextSegment segment) {
+        byte[] text = segment.text().getBytes(StandardCharsets.UTF_8);
+        Map<String, String> metadata = segment.metadata().asMap();
+
+        int length = Integer.BYTES + text.length + Integer.BYTES;
+        byte[][] fields = new byte[metadata.size() * 2][];
+        int i = 0;
+        for (Map.Entry<String, String> field : metadata.entrySet()) {
+            fields[i++] = field.getKey().getBytes(StandardCharsets.UTF_8);
+            fields[i++] = String.valueOf(field.getValue()).getBytes(StandardCharsets.UTF_8);
+        }
+        for (byte[] field : fields) {
+            length += Integer.BYTES + field.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(text.length).put(text).putInt(metadata.size());
+        for (byte[] field : fields) {
+            buffer.putInt(field.length).put(field);
+        }
+        return buffer.array();
+    }
+
+    private static TextSegment decode(ByteBuffer buffer) {
+        String text = readString(buffer);
+        int fields = buffer.getInt();
+        Map<String, String> metadata = new HashMap<>();
+        for (int i = 0; i < fields; i++) {
+            metadata.put(readString(buffer), readString(buffer));
+        }
+        return TextSegment.from(text, Metadata.from(metadata));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
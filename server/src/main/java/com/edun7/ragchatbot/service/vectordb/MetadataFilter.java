@@ -0,0 +1,62 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import dev.langchain4j.data.document.Metadata;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Restricts a search to segments whose metadata matches: for every key, the segment's value
+ * must be one of the allowed values. Keys are the names in {@link com.edun7.ragchatbot.service.document.SegmentMetadata}.
+ */
+public final class MetadataFilter {
+
+    public static final MetadataFilter NONE = new MetadataFilter(Map.of());
+
+    private final Map<String, Set<String>> conditions;
+
+    private MetadataFilter(Map<String, Set<String>> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Filter from allowed values per metadata key; null or empty input matches everything
+     */
+    public static MetadataFilter from(Map<String, ? extends Collection<String>> allowedValues) {
+        if (allowedValues == null || allowedValues.isEmpty()) {
+            return NONE;
+        }
+        Map<String, Set<String>> conditions = new LinkedHashMap<>();
+        allowedValues.forEach((key, values) -> conditions.put(key, Set.copyOf(values)));
+        return new MetadataFilter(Map.copyOf(conditions));
+    }
+
+    public static MetadataFilter of(String key, String... allowedValues) {
+        return from(Map.of(key, Set.of(allowedValues)));
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    public Map<String, Set<String>> getConditions() {
+        return conditions;
+    }
+
+    public boolean matches(Metadata metadata) {
+        for (Map.Entry<String, Set<String>> condition : conditions.entrySet()) {
+            String value = metadata.get(condition.getKey());
+            if (value == null || !condition.getValue().contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel on the incubating Java Vector API, using the widest vectors the CPU supports.
+ * Only referenced by name from {@link VectorKernel#create()}, so the server still runs
+ * without {@code --add-modules jdk.incubator.vector}.
+ */
+final class PanamaVectorKernel implements VectorKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    PanamaVectorKernel() {
+        // Narrower species are emulated in Java and slower than the scalar loop
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.vectorBitSize() + " bits are too narrow");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dot(float[] query, float[] vectors, int offset) {
+        int length = query.length;
+        int lanes = SPECIES.length();
+        // Two accumulators hide the latency of the dependent fused multiply-adds
+        FloatVector first = FloatVector.zero(SPECIES);
+        FloatVector second = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = length - 2 * lanes; i <= bound; i += 2 * lanes) {
+            first = FloatVector.fromArray(SPECIES, query, i)
+                    .fma(FloatVector.fromArray(SPECIES, vectors, offset + i), first);
+            second = FloatVector.fromArray(SPECIES, query, i + lanes)
+                    .fma(FloatVector.fromArray(SPECIES, vectors, offset + i + lanes), second);
+        }
+        for (int bound = SPECIES.loopBound(length); i < bound; i += lanes) {
+            first = FloatVector.fromArray(SPECIES, query, i)
+                    .fma(FloatVector.fromArray(SPECIES, vectors, offset + i), first);
+        }
+        float sum = first.add(second).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+}
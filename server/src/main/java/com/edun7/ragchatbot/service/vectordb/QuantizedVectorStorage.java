@@ -0,0 +1,171 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.config.VectorQuantization;
+
+import java.util.Arrays;
+
+/**
+ * Compact in-memory codes of the vectors in a {@link MappedSegmentStore}, used to walk the
+ * HNSW graph with cheap approximate scores.
+ * <p>
+ * INT8 keeps one signed byte per dimension, scaled by the largest component of the vector.
+ * BINARY keeps the sign bit of each dimension and scores by Hamming distance, mapped onto
+ * [-1, 1] like a cosine. Full-precision vectors stay in the mapped store for re-scoring.
+ */
+public final class QuantizedVectorStorage implements VectorStorage {
+
+    private final MappedSegmentStore source;
+    private final VectorQuantization quantization;
+    private final int dimension;
+    private final int words;
+
+    // INT8 codes and per-vector scales
+    private volatile byte[] codes = new byte[0];
+    private volatile float[] scales = new float[0];
+    // BINARY codes, {@code words} longs per vector
+    private volatile long[] bits = new long[0];
+    private volatile int count;
+
+    public QuantizedVectorStorage(MappedSegmentStore source, VectorQuantization quantization) {
+        if (quantization == VectorQuantization.NONE) {
+            throw new IllegalArgumentException("Quantized storage needs a quantization");
+        }
+        this.source = source;
+        this.quantization = quantization;
+        this.dimension = source.dimension();
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Encode every record appended to the source since the last call
+     */
+    public synchronized void catchUp() {
+        int target = source.size();
+        if (target <= count) {
+            return;
+        }
+        ensureCapacity(target);
+        for (int id = count; id < target; id++) {
+            encode(id, source.vector(id));
+        }
+        count = target;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Bytes held per encoded vector
+     */
+    public int bytesPerVector() {
+        return quantization == VectorQuantization.INT8 ? dimension + Float.BYTES : words * Long.BYTES;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] vector(int id) {
+        return source.vector(id);
+    }
+
+    @Override
+    public float dot(float[] query, int id) {
+        if (quantization == VectorQuantization.BINARY) {
+            return hammingScore(encodeBits(query), 0, bits, id * words);
+        }
+        byte[] c = codes;
+        int offset = id * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * c[offset + i];
+        }
+        return sum * scales[id];
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        if (quantization == VectorQuantization.BINARY) {
+            long[] encoded = bits;
+            return hammingScore(encoded, a * words, encoded, b * words);
+        }
+        byte[] c = codes;
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        int sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += c[offsetA + i] * c[offsetB + i];
+        }
+        float[] s = scales;
+        return sum * s[a] * s[b];
+    }
+
+    @Override
+    public QueryScorer scorer(float[] query) {
+        if (quantization == VectorQuantization.BINARY) {
+            long[] queryBits = encodeBits(query);
+            return id -> hammingScore(queryBits, 0, bits, id * words);
+        }
+        return id -> dot(query, id);
+    }
+
+    private void encode(int id, float[] vector) {
+        if (quantization == VectorQuantization.BINARY) {
+            System.arraycopy(encodeBits(vector), 0, bits, id * words, words);
+            return;
+        }
+        float maxAbs = 0;
+        for (float v : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        float scale = maxAbs == 0 ? 0 : maxAbs / 127;
+        int offset = id * dimension;
+        for (int i = 0; i < dimension; i++) {
+            codes[offset + i] = scale == 0 ? 0 : (byte) Math.max(-127, Math.min(127, Math.round(vector[i] / scale)));
+        }
+        scales[id] = scale;
+    }
+
+    private long[] encodeBits(float[] vector) {
+        long[] encoded = new long[words];
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0) {
+                encoded[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+            }
+        }
+        return encoded;
+    }
+
+    private float hammingScore(long[] a, int offsetA, long[] b, int offsetB) {
+        int differing = 0;
+        for (int i = 0; i < words; i++) {
+            differing += Long.bitCount(a[offsetA + i] ^ b[offsetB + i]);
+        }
+        return (dimension - 2f * differing) / dimension;
+    }
+
+    private void ensureCapacity(int vectors) {
+        if (quantization == VectorQuantization.BINARY) {
+            if (bits.length < vectors * words) {
+                bits = Arrays.copyOf(bits, grow(bits.length / words, vectors) * words);
+            }
+            return;
+        }
+        if (scales.length < vectors) {
+            int capacity = grow(scales.length, vectors);
+            codes = Arrays.copyOf(codes, capacity * dimension);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+    }
+
+    private static int grow(int current, int needed) {
+        return Math.max(needed, Math.max(16, current + (current >> 1)));
+    }
+}
@@ -0,0 +1,44 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion of several ranked result lists.
+ * <p>
+ * Each result scores {@code weight / (rankConstant + rank)} for every list it appears in,
+ * with ranks starting at 1, and the fused list is ordered by the sum. Only ranks matter, so
+ * lists with incomparable scores such as BM25 and cosine similarity can be combined.
+ */
+public final class RankFusion {
+
+    private RankFusion() {
+    }
+
+    public static List<EmbeddingMatch<TextSegment>> reciprocalRankFusion(List<List<EmbeddingMatch<TextSegment>>> rankings,
+                                                                         double[] weights, int rankConstant,
+                                                                         int maxResults) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Map<String, EmbeddingMatch<TextSegment>> matches = new LinkedHashMap<>();
+        for (int list = 0; list < rankings.size(); list++) {
+            List<EmbeddingMatch<TextSegment>> ranking = rankings.get(list);
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                EmbeddingMatch<TextSegment> match = ranking.get(rank);
+                scores.merge(match.embeddingId(), weights[list] / (rankConstant + rank + 1), Double::sum);
+                matches.putIfAbsent(match.embeddingId(), match);
+            }
+        }
+
+        List<EmbeddingMatch<TextSegment>> fused = new ArrayList<>(matches.size());
+        matches.forEach((id, match) ->
+                fused.add(new EmbeddingMatch<>(scores.get(id), id, match.embedding(), match.embedded())));
+        fused.sort(Comparator.comparingDouble((EmbeddingMatch<TextSegment> match) -> match.score()).reversed());
+        return fused.size() > maxResults ? new ArrayList<>(fused.subList(0, maxResults)) : fused;
+    }
+}
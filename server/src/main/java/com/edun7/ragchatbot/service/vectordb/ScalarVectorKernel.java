@@ -0,0 +1,21 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+/**
+ * Plain loop kernel, used when the Java Vector API is not available
+ */
+final class ScalarVectorKernel implements VectorKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] query, float[] vectors, int offset) {
+        float sum = 0;
+        for (int i = 0; i < query.length; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,18 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Source of a segment document as written by ElasticsearchEmbeddingStore, without the vector
+ */
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SegmentDocument {
+    private String text;
+    private Map<String, String> metadata;
+}
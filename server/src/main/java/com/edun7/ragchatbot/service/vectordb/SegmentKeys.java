@@ -0,0 +1,94 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Document id and segment hash of every record in a {@link MappedSegmentStore}, held in memory
+ * by record id.
+ * <p>
+ * Filters, hash lookups and deletes by document read these arrays instead of decoding each
+ * segment's text and metadata from the mapped file. Document ids are shared between the
+ * segments of a document, so the cost is mostly the hash, about 120 bytes per segment. Records
+ * appended since the last {@link #catchUp} are read from the store.
+ */
+final class SegmentKeys {
+
+    private static final Set<String> KEYS = Set.of(SegmentMetadata.DOCUMENT_ID, SegmentMetadata.SEGMENT_HASH);
+
+    private final MappedSegmentStore source;
+    // One instance per document id, only touched while catching up
+    private final Map<String, String> documentIdInstances = new HashMap<>();
+
+    private volatile String[] documentIds = new String[0];
+    private volatile String[] segmentHashes = new String[0];
+    private volatile int count;
+
+    SegmentKeys(MappedSegmentStore source) {
+        this.source = source;
+    }
+
+    /**
+     * Read the keys of every record appended to the source since the last call
+     */
+    synchronized void catchUp() {
+        int target = source.size();
+        if (target <= count) {
+            return;
+        }
+        if (target > documentIds.length) {
+            int capacity = Math.max(target, documentIds.length + (documentIds.length >> 1) + 16);
+            documentIds = Arrays.copyOf(documentIds, capacity);
+            segmentHashes = Arrays.copyOf(segmentHashes, capacity);
+        }
+        for (int id = count; id < target; id++) {
+            TextSegment segment = source.segment(id);
+            String documentId = segment.metadata(SegmentMetadata.DOCUMENT_ID);
+            documentIds[id] = documentId != null ? documentIdInstances.computeIfAbsent(documentId, key -> key) : null;
+            segmentHashes[id] = segment.metadata(SegmentMetadata.SEGMENT_HASH);
+        }
+        count = target;
+    }
+
+    synchronized void clear() {
+        count = 0;
+        documentIds = new String[0];
+        segmentHashes = new String[0];
+        documentIdInstances.clear();
+    }
+
+    int size() {
+        return count;
+    }
+
+    String documentId(int id) {
+        return id < count ? documentIds[id] : source.segment(id).metadata(SegmentMetadata.DOCUMENT_ID);
+    }
+
+    String segmentHash(int id) {
+        return id < count ? segmentHashes[id] : source.segment(id).metadata(SegmentMetadata.SEGMENT_HASH);
+    }
+
+    /**
+     * Test for records matching the filter. Filters on keys held here never decode a segment;
+     * other keys fall back to the segment metadata in the store.
+     */
+    IntPredicate matcher(MetadataFilter filter) {
+        if (!KEYS.containsAll(filter.getConditions().keySet())) {
+            return id -> filter.matches(source.segment(id).metadata());
+        }
+        Set<String> documentIdValues = filter.getConditions().get(SegmentMetadata.DOCUMENT_ID);
+        Set<String> segmentHashValues = filter.getConditions().get(SegmentMetadata.SEGMENT_HASH);
+        return id -> matches(documentIdValues, documentId(id)) && matches(segmentHashValues, segmentHash(id));
+    }
+
+    private static boolean matches(Set<String> allowed, String value) {
+        return allowed == null || value != null && allowed.contains(value);
+    }
+}
@@ -0,0 +1,89 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code k} best scores seen so far, in a min-heap of primitive arrays so that offering a
+ * score that does not make the cut costs one comparison and no allocation
+ */
+final class TopKHeap {
+
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+
+    TopKHeap(int k) {
+        this.ids = new int[k];
+        this.scores = new float[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether a score would be kept by {@link #offer}
+     */
+    boolean accepts(float score) {
+        return size < ids.length || score > scores[0];
+    }
+
+    void offer(int id, float score) {
+        if (size < ids.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        } else if (score > scores[0]) {
+            siftDown(id, score);
+        }
+    }
+
+    void addAll(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * The kept entries, best first
+     */
+    List<HnswIndex.Hit> toHits() {
+        HnswIndex.Hit[] hits = new HnswIndex.Hit[size];
+        for (int i = 0; i < size; i++) {
+            hits[i] = new HnswIndex.Hit(ids[i], scores[i]);
+        }
+        Arrays.sort(hits, (a, b) -> Float.compare(b.score(), a.score()));
+        return Arrays.asList(hits);
+    }
+
+    private void siftDown(int id, float score) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+}
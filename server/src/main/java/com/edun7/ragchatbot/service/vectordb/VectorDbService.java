@@ -1,9 +1,14 @@
 package com.edun7.ragchatbot.service.vectordb;
 
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface VectorDbService {
     /**
@@ -14,13 +19,82 @@ public interface VectorDbService {
     /**
      * Add multiple text segments to the vector database
      */
-    void addSegments(List<TextSegment> segments);
+    default void addSegments(List<TextSegment> segments) {
+        addSegments(segments, IndexingProgressListener.NONE);
+    }
+    
+    /**
+     * Add multiple text segments to the vector database, reporting progress as batches complete
+     */
+    void addSegments(List<TextSegment> segments, IndexingProgressListener listener);
     
     /**
      * Search for relevant segments based on a query
      */
     List<EmbeddingMatch<TextSegment>> search(String query, int maxResults);
     
+    /**
+     * Search for relevant segments based on an already embedded query
+     */
+    List<EmbeddingMatch<TextSegment>> search(Embedding queryEmbedding, int maxResults);
+    
+    /**
+     * Search with both the query text and its embedding. Implementations without lexical
+     * search only use the embedding.
+     */
+    default List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults) {
+        return search(queryEmbedding, maxResults);
+    }
+    
+    /**
+     * Search only among segments matching a metadata filter. The filter is applied inside the
+     * nearest-neighbor search, so restricted queries still return up to {@code maxResults} matches.
+     */
+    List<EmbeddingMatch<TextSegment>> search(String query, Embedding queryEmbedding, int maxResults, MetadataFilter filter);
+    
+    /**
+     * Search for several queries at once, returning the matches of each query in input order.
+     * Implementations backed by a remote store send them in a single request; the default
+     * searches them one by one.
+     */
+    default List<List<EmbeddingMatch<TextSegment>>> searchAll(List<String> queries, List<Embedding> queryEmbeddings,
+                                                               int maxResults, MetadataFilter filter) {
+        List<List<EmbeddingMatch<TextSegment>>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(search(queries.get(i), queryEmbeddings.get(i), maxResults, filter));
+        }
+        return results;
+    }
+    
+    /**
+     * Embed a query with the same model used for the stored segments
+     */
+    Embedding embedQuery(String query);
+    
+    /**
+     * Embed several queries, in input order. The default embeds them one by one.
+     */
+    default List<Embedding> embedQueries(List<String> queries) {
+        List<Embedding> embeddings = new ArrayList<>(queries.size());
+        queries.forEach(query -> embeddings.add(embedQuery(query)));
+        return embeddings;
+    }
+    
+    /**
+     * Hashes of the stored segments of a document, see {@link SegmentMetadata#SEGMENT_HASH}
+     */
+    Set<String> findSegmentHashes(String documentId);
+    
+    /**
+     * Delete the stored segments of a document that have the given hashes
+     */
+    void deleteSegments(String documentId, Collection<String> segmentHashes);
+    
+    /**
+     * Delete every stored segment of a document
+     */
+    void deleteDocument(String documentId);
+    
     /**
      * Delete all segments from the vector database
      */
@@ -0,0 +1,63 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+/**
+ * Similarity kernel over vectors packed back to back in a {@code float[]}. Stored vectors are
+ * normalized, so the dot product is their cosine similarity.
+ * <p>
+ * {@link #create()} picks the SIMD implementation on the incubating Java Vector API when the
+ * JVM runs with {@code --add-modules jdk.incubator.vector} and the CPU has at least 128-bit
+ * vectors, and the scalar loop otherwise.
+ */
+interface VectorKernel {
+
+    String PANAMA_KERNEL = "com.edun7.ragchatbot.service.vectordb.PanamaVectorKernel";
+
+    /**
+     * Name of the implementation, for logs
+     */
+    String name();
+
+    /**
+     * Dot product of {@code query} and the vector of {@code query.length} floats at
+     * {@code offset} in {@code vectors}
+     */
+    float dot(float[] query, float[] vectors, int offset);
+
+    /**
+     * Dot products of {@code query} and {@code count} consecutive vectors starting at
+     * {@code offset}, written to {@code scores[0..count)}
+     */
+    default void dotAll(float[] query, float[] vectors, int offset, int count, float[] scores) {
+        for (int i = 0; i < count; i++) {
+            scores[i] = dot(query, vectors, offset + i * query.length);
+        }
+    }
+
+    static VectorKernel create() {
+        try {
+            // Loaded by name so that this class still links without the incubator module
+            return (VectorKernel) Class.forName(PANAMA_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (LinkageError | ReflectiveOperationException | RuntimeException e) {
+            return new ScalarVectorKernel();
+        }
+    }
+
+    /**
+     * Scale a vector to unit length; the zero vector stays zero
+     */
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,37 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+/**
+ * Read access to stored vectors by record id, used by {@link HnswIndex} for scoring
+ * without copying vectors out of the underlying storage.
+ */
+public interface VectorStorage {
+
+    int dimension();
+
+    /**
+     * Copy of the stored vector of a record
+     */
+    float[] vector(int id);
+
+    /**
+     * Dot product between a query vector and the stored vector of a record
+     */
+    float dot(float[] query, int id);
+
+    /**
+     * Dot product between the stored vectors of two records
+     */
+    float dot(int a, int b);
+
+    /**
+     * Scorer for repeated comparisons against one query, letting implementations prepare
+     * the query once
+     */
+    default QueryScorer scorer(float[] query) {
+        return id -> dot(query, id);
+    }
+
+    interface QueryScorer {
+        float score(int id);
+    }
+}
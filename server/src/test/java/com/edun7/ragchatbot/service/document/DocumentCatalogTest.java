@@ -0,0 +1,169 @@
+package com.edun7.ragchatbot.service.document;
+
+import com.edun7.ragchatbot.model.DocumentInfo;
+import com.edun7.ragchatbot.model.DocumentPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTheLogOnReopen() throws IOException {
+        try (DocumentCatalog catalog = open(100)) {
+            catalog.put(document("a", "2026-01-01T00:00:01"));
+            catalog.put(document("b", "2026-01-01T00:00:02"));
+            catalog.put(document("c", "2026-01-01T00:00:03"));
+            catalog.remove("b");
+        }
+
+        try (DocumentCatalog catalog = open(100)) {
+            assertThat(catalog.size()).isEqualTo(2);
+            assertThat(catalog.get("b")).isEmpty();
+            assertThat(catalog.findByName("a.pdf")).map(DocumentInfo::getId).contains("a");
+            assertThat(catalog.findByContentHash("hash-c")).map(DocumentInfo::getId).contains("c");
+        }
+        assertThat(directory.resolve("catalog.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void cutsOffARecordTornByACrash() throws IOException {
+        try (DocumentCatalog catalog = open(100)) {
+            catalog.put(document("a", "2026-01-01T00:00:01"));
+            catalog.put(document("b", "2026-01-01T00:00:02"));
+        }
+        Path log = directory.resolve("catalog.log");
+        long complete = Files.size(log);
+        // Half of the next record made it to disk
+        try (DocumentCatalog catalog = open(100)) {
+            catalog.put(document("c", "2026-01-01T00:00:03"));
+        }
+        truncate(log, complete + (Files.size(log) - complete) / 2);
+
+        try (DocumentCatalog catalog = open(100)) {
+            assertThat(catalog.size()).isEqualTo(2);
+            assertThat(catalog.get("c")).isEmpty();
+            assertThat(Files.size(log)).isEqualTo(complete);
+            // Appends continue after the last complete record
+            catalog.put(document("d", "2026-01-01T00:00:04"));
+        }
+        try (DocumentCatalog catalog = open(100)) {
+            assertThat(ids(catalog.page(null, 10))).containsExactly("a", "b", "d");
+        }
+    }
+
+    @Test
+    void dropsARecordWithABadChecksum() throws IOException {
+        try (DocumentCatalog catalog = open(100)) {
+            catalog.put(document("a", "2026-01-01T00:00:01"));
+            catalog.put(document("b", "2026-01-01T00:00:02"));
+        }
+        Path log = directory.resolve("catalog.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), channel.size() - 1);
+        }
+
+        try (DocumentCatalog catalog = open(100)) {
+            assertThat(catalog.size()).isEqualTo(1);
+            assertThat(catalog.get("a")).isPresent();
+        }
+    }
+
+    @Test
+    void foldsTheLogIntoASnapshot() throws IOException {
+        try (DocumentCatalog catalog = open(3)) {
+            for (int i = 0; i < 7; i++) {
+                catalog.put(document("doc-" + i, "2026-01-01T00:00:0" + i));
+            }
+            catalog.remove("doc-0");
+        }
+        assertThat(directory.resolve("catalog.snapshot")).exists();
+        assertThat(directory.resolve("catalog.snapshot.tmp")).doesNotExist();
+
+        try (DocumentCatalog catalog = open(3)) {
+            assertThat(catalog.size()).isEqualTo(6);
+            assertThat(catalog.get("doc-0")).isEmpty();
+            assertThat(catalog.get("doc-6")).isPresent();
+        }
+    }
+
+    @Test
+    void revisionsMoveTheSecondaryIndexes() throws IOException {
+        try (DocumentCatalog catalog = open(100)) {
+            DocumentInfo original = document("a", "2026-01-01T00:00:01");
+            catalog.put(original);
+            catalog.put(document("b", "2026-01-01T00:00:02"));
+            catalog.put(original.toBuilder().contentHash("hash-a2").uploadDate("2026-01-01T00:00:03").revision(2).build());
+
+            assertThat(catalog.findByContentHash("hash-a")).isEmpty();
+            assertThat(catalog.findByContentHash("hash-a2")).map(DocumentInfo::getRevision).contains(2);
+            assertThat(ids(catalog.page(null, 10))).containsExactly("b", "a");
+        }
+    }
+
+    @Test
+    void pagesInUploadOrder() throws IOException {
+        try (DocumentCatalog catalog = open(100)) {
+            catalog.put(document("c", "2026-01-01T00:00:03"));
+            catalog.put(document("a", "2026-01-01T00:00:01"));
+            catalog.put(document("e", "2026-01-01T00:00:05"));
+            catalog.put(document("b", "2026-01-01T00:00:02"));
+            catalog.put(document("d", "2026-01-01T00:00:03"));
+
+            List<String> seen = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                DocumentPage page = catalog.page(cursor, 2);
+                assertThat(page.getTotal()).isEqualTo(5);
+                seen.addAll(ids(page));
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+
+            assertThat(pages).isEqualTo(3);
+            assertThat(seen).containsExactly("a", "b", "c", "d", "e");
+            assertThatThrownBy(() -> catalog.page("not a cursor", 2)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private DocumentCatalog open(int snapshotInterval) throws IOException {
+        return new DocumentCatalog(directory, snapshotInterval, false);
+    }
+
+    private static DocumentInfo document(String id, String uploadDate) {
+        return DocumentInfo.builder()
+                .id(id)
+                .name(id + ".pdf")
+                .type("application/pdf")
+                .size(1024)
+                .uploadDate(uploadDate)
+                .contentHash("hash-" + id)
+                .revision(1)
+                .build();
+    }
+
+    private static List<String> ids(DocumentPage page) {
+        return page.getDocuments().stream().map(DocumentInfo::getId).toList();
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
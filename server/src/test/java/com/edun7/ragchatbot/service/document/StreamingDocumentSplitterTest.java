@@ -0,0 +1,177 @@
+package com.edun7.ragchatbot.service.document;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentByParagraphSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingDocumentSplitterTest {
+
+    private static final String[] WORDS = {"the", "index", "stores", "segments", "while", "queries", "search",
+            "vectors", "documents", "graph", "nearest", "neighbors", "answer", "model", "page", "text"};
+    private static final String[] SEPARATORS = {"\n\n", "\n \n", "\r\n\r\n", "\n\n\n", " \n\t\n "};
+
+    @ParameterizedTest
+    @CsvSource({
+            "200, 0, 1",
+            "200, 40, 2",
+            "300, 100, 3",
+            "120, 60, 4",
+            "1024, 0, 5",
+            "80, 20, 6"
+    })
+    void producesTheSegmentsOfTheParagraphSplitter(int maxSegmentSize, int maxOverlapSize, long seed) {
+        Random random = new Random(seed);
+        String text = document(random, 40, maxSegmentSize);
+        List<String> pages = splitIntoPages(random, text);
+
+        List<String> expected = new DocumentByParagraphSplitter(maxSegmentSize, maxOverlapSize)
+                .split(Document.from(text)).stream().map(TextSegment::text).toList();
+        List<TextSegment> actual = new ArrayList<>();
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(maxSegmentSize, maxOverlapSize,
+                new Metadata(), actual::add);
+        for (int i = 0; i < pages.size(); i++) {
+            splitter.accept(i + 1, pages.get(i));
+        }
+        splitter.finish();
+
+        assertThat(actual).extracting(TextSegment::text).containsExactlyElementsOf(expected);
+        assertThat(splitter.getSegmentCount()).isEqualTo(expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            assertThat(actual.get(i).metadata(SegmentMetadata.INDEX)).isEqualTo(Integer.toString(i));
+        }
+    }
+
+    @Test
+    void separatorSpanningAPageBreakSeparatesParagraphs() {
+        List<TextSegment> segments = new ArrayList<>();
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(30, 0, new Metadata(), segments::add);
+
+        splitter.accept(1, "First paragraph on page one.\n");
+        splitter.accept(2, "\nSecond paragraph, page two.");
+        splitter.accept(3, "\n\nThird.");
+        assertThat(segments).extracting(TextSegment::text).containsExactly("First paragraph on page one.");
+        splitter.finish();
+
+        assertThat(segments).extracting(TextSegment::text)
+                .containsExactly("First paragraph on page one.", "Second paragraph, page two.", "Third.");
+        assertThat(segments).extracting(segment -> segment.metadata(SegmentMetadata.PAGE)).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void segmentsCarryThePageTheirFirstParagraphStartsOn() {
+        List<TextSegment> segments = new ArrayList<>();
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(60, 0,
+                Metadata.from(SegmentMetadata.DOCUMENT_ID, "doc-1"), segments::add);
+
+        splitter.accept(1, "Alpha paragraph.\n\nBeta paragraph starts on page one");
+        splitter.accept(2, " and ends on page two.\n\nGamma paragraph.");
+        splitter.accept(3, "\n\nDelta paragraph on page three.");
+        splitter.finish();
+
+        assertThat(segments).extracting(TextSegment::text).containsExactly(
+                "Alpha paragraph.",
+                "Beta paragraph starts on page one and ends on page two.",
+                "Gamma paragraph.\n\nDelta paragraph on page three.");
+        assertThat(segments).extracting(segment -> segment.metadata(SegmentMetadata.PAGE)).containsExactly("1", "1", "2");
+        assertThat(segments).allSatisfy(segment ->
+                assertThat(segment.metadata(SegmentMetadata.DOCUMENT_ID)).isEqualTo("doc-1"));
+    }
+
+    @Test
+    void textWithoutBlankLinesIsSplitWhileItArrives() {
+        Random random = new Random(7);
+        List<TextSegment> segments = new ArrayList<>();
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(200, 0, new Metadata(), segments::add);
+        StringBuilder words = new StringBuilder();
+
+        // Pages of sentences broken by single line breaks only, as PDF text often is
+        for (int page = 1; page <= 50; page++) {
+            StringBuilder text = new StringBuilder();
+            for (int line = 0; line < 10; line++) {
+                text.append(sentence(random)).append(line % 3 == 2 ? "\n" : " ");
+            }
+            words.append(text).append(' ');
+            splitter.accept(page, text.toString());
+            // Nothing more than a few segments of text is held back
+            assertThat(segments.stream().mapToInt(segment -> segment.text().length()).sum())
+                    .isGreaterThan(words.length() - 5 * 200);
+        }
+        splitter.finish();
+
+        assertThat(segments).allSatisfy(segment -> assertThat(segment.text().length()).isLessThanOrEqualTo(200));
+        assertThat(String.join(" ", segments.stream().map(TextSegment::text).toList()).split("\\s+"))
+                .containsExactly(words.toString().trim().split("\\s+"));
+    }
+
+    @Test
+    void textWithoutWhitespaceIsNotBufferedIndefinitely() {
+        List<TextSegment> segments = new ArrayList<>();
+        StreamingDocumentSplitter splitter = new StreamingDocumentSplitter(50, 0, new Metadata(), segments::add);
+
+        for (int page = 1; page <= 10; page++) {
+            splitter.accept(page, "x".repeat(100));
+        }
+
+        assertThat(segments).isNotEmpty();
+        splitter.finish();
+        assertThat(segments.stream().mapToInt(segment -> segment.text().length()).sum()).isEqualTo(1000);
+    }
+
+    /**
+     * Paragraphs of random sentences; about one in five is longer than a whole segment
+     */
+    private static String document(Random random, int paragraphs, int maxSegmentSize) {
+        StringBuilder text = new StringBuilder();
+        for (int p = 0; p < paragraphs; p++) {
+            if (p > 0) {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            int length = random.nextInt(5) == 0
+                    ? maxSegmentSize + random.nextInt(2 * maxSegmentSize)
+                    : 10 + random.nextInt(maxSegmentSize / 2);
+            StringBuilder paragraph = new StringBuilder();
+            while (paragraph.length() < length) {
+                if (paragraph.length() > 0) {
+                    paragraph.append(' ');
+                }
+                paragraph.append(sentence(random));
+            }
+            text.append(paragraph);
+        }
+        return text.toString();
+    }
+
+    private static String sentence(Random random) {
+        StringBuilder sentence = new StringBuilder();
+        int words = 3 + random.nextInt(10);
+        for (int w = 0; w < words; w++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sentence.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+        }
+        return sentence.append('.').toString();
+    }
+
+    /**
+     * Cut the text at random offsets, so page breaks fall inside words, sentences and separators
+     */
+    private static List<String> splitIntoPages(Random random, String text) {
+        List<String> pages = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + 1 + random.nextInt(300));
+            pages.add(text.substring(start, end));
+            start = end;
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,119 @@
+package com.edun7.ragchatbot.service.embedding;
+
+import com.edun7.ragchatbot.config.EmbeddingConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingServiceTest {
+
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private EmbeddingService service;
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstBatch.countDown();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void queriesOvertakeQueuedSegments() throws Exception {
+        service = service(2);
+        CompletableFuture<Embedding> busy = service.embed("busy");
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<List<Embedding>> segments = service.embedAll(List.of(
+                TextSegment.from("segment 1"), TextSegment.from("segment 2"), TextSegment.from("segment 3")));
+        CompletableFuture<Embedding> query = CompletableFuture.supplyAsync(() -> service.embedQuery("query"));
+        awaitPending(4);
+        releaseFirstBatch.countDown();
+
+        assertThat(query.get(5, TimeUnit.SECONDS).vector()).containsExactly(5f);
+        assertThat(segments.get(5, TimeUnit.SECONDS)).hasSize(3);
+        assertThat(busy.get(5, TimeUnit.SECONDS).vector()).containsExactly(4f);
+        assertThat(batches).containsExactly(
+                List.of("busy"),
+                List.of("query", "segment 1"),
+                List.of("segment 2", "segment 3"));
+    }
+
+    @Test
+    void shutdownCompletesEveryOutstandingFuture() throws Exception {
+        service = service(2);
+        CompletableFuture<Embedding> busy = service.embed("busy");
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<Embedding>> queued = service.embedAll(List.of(
+                TextSegment.from("segment 1"), TextSegment.from("segment 2"), TextSegment.from("segment 3")));
+        awaitPending(3);
+
+        service.shutdown();
+
+        assertThatThrownBy(() -> busy.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(service.embed("late")).isCompletedExceptionally();
+    }
+
+    private EmbeddingService service(int maxBatchSize) {
+        EmbeddingConfig config = new EmbeddingConfig();
+        config.setMaxBatchSize(maxBatchSize);
+        config.setMaxWait(Duration.ofMillis(50));
+        config.setInferenceThreads(1);
+        return new EmbeddingService(new RecordingModel(), config, new ExecutorFactory(false),
+                new RagMetrics(ObservationRegistry.NOOP, new SimpleMeterRegistry()));
+    }
+
+    private void awaitPending(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getPendingCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(service.getPendingCount()).isEqualTo(count);
+    }
+
+    /**
+     * Embeds each text as its length and holds the first batch until released
+     */
+    private class RecordingModel implements EmbeddingModel {
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            List<String> texts = segments.stream().map(TextSegment::text).toList();
+            batches.add(texts);
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                try {
+                    releaseFirstBatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted", e);
+                }
+            }
+            List<Embedding> embeddings = new ArrayList<>(texts.size());
+            texts.forEach(text -> embeddings.add(Embedding.from(new float[]{text.length()})));
+            return Response.from(embeddings);
+        }
+    }
+}
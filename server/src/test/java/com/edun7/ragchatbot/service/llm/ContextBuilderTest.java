@@ -0,0 +1,98 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.config.ContextConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextBuilderTest {
+
+    // One token per whitespace-separated word
+    private static final TokenCounter WORDS = text -> text.isBlank() ? 0 : text.trim().split("\\s+").length;
+
+    private static final String FIRST = "Invoices are due within thirty days of receipt.";
+    private static final String SECOND = "Late payments accrue interest at two percent monthly.";
+    private static final String THIRD = "Disputes must be raised in writing before the due date.";
+
+    @Test
+    void includesChunksInOrderWithinTheBudget() {
+        // 20 tokens less 4 reserved leaves 16, room for the first two chunks of 8 words
+        ContextBuilder builder = builder(20, 1);
+
+        PromptContext context = builder.build(List.of(FIRST, SECOND, THIRD), 4);
+
+        assertThat(context.getText()).isEqualTo(FIRST + "\n\n" + SECOND);
+        assertThat(context.getTokens()).isEqualTo(16).isLessThanOrEqualTo(context.getBudgetTokens());
+        assertThat(context.getBudgetTokens()).isEqualTo(16);
+        assertThat(context.getOfferedChunks()).isEqualTo(3);
+        assertThat(context.getIncludedChunks()).isEqualTo(2);
+        assertThat(context.isTrimmed()).isTrue();
+    }
+
+    @Test
+    void skipsNearDuplicateChunks() {
+        ContextBuilder builder = builder(1000, 1);
+        String repeated = "INVOICES are due, within thirty days of receipt!";
+
+        PromptContext context = builder.build(List.of(FIRST, repeated, SECOND), 0);
+
+        assertThat(context.getText()).isEqualTo(FIRST + "\n\n" + SECOND);
+        assertThat(context.getDuplicateChunks()).isOne();
+        assertThat(context.isTrimmed()).isFalse();
+    }
+
+    @Test
+    void trimsTheLastChunkAtASentenceBoundary() {
+        // Room for the first chunk and the first two sentences of the second
+        ContextBuilder builder = builder(8 + 18, 1);
+
+        PromptContext context = builder.build(List.of(FIRST, SECOND + " " + THIRD + " " + FIRST), 0);
+
+        assertThat(context.getText()).isEqualTo(FIRST + "\n\n" + SECOND + " " + THIRD);
+        assertThat(context.getIncludedChunks()).isEqualTo(2);
+        assertThat(context.isTrimmed()).isTrue();
+    }
+
+    @Test
+    void trimsAtAParagraphBoundary() {
+        ContextBuilder builder = builder(5, 1);
+
+        PromptContext context = builder.build(List.of("Payment terms\n\n" + FIRST), 0);
+
+        assertThat(context.getText()).isEqualTo("Payment terms");
+    }
+
+    @Test
+    void dropsTrimmedChunksBelowTheMinimumSize() {
+        ContextBuilder builder = builder(8 + 18, 10);
+
+        PromptContext context = builder.build(List.of(FIRST, SECOND + " " + THIRD + " " + FIRST), 0);
+
+        assertThat(context.getText()).isEqualTo(FIRST + "\n\n" + SECOND + " " + THIRD);
+
+        // Only 9 tokens are left for the second chunk, below the minimum of 10
+        context = builder(8 + 9, 10).build(List.of(FIRST, SECOND + " " + THIRD), 0);
+
+        assertThat(context.getText()).isEqualTo(FIRST);
+        assertThat(context.getIncludedChunks()).isOne();
+        assertThat(context.isTrimmed()).isTrue();
+    }
+
+    @Test
+    void returnsAnEmptyContextWhenNothingFits() {
+        PromptContext context = builder(100, 1).build(List.of(FIRST, SECOND), 100);
+
+        assertThat(context.getText()).isEmpty();
+        assertThat(context.getTokens()).isZero();
+        assertThat(context.getBudgetTokens()).isZero();
+    }
+
+    private static ContextBuilder builder(int maxPromptTokens, int minChunkTokens) {
+        ContextConfig config = new ContextConfig();
+        config.setMaxPromptTokens(maxPromptTokens);
+        config.setMinChunkTokens(minChunkTokens);
+        return new ContextBuilder(config, WORDS);
+    }
+}
@@ -0,0 +1,172 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.edun7.ragchatbot.config.ContextConfig;
+import com.edun7.ragchatbot.config.ExecutorFactory;
+import com.edun7.ragchatbot.config.GroqConfig;
+import com.edun7.ragchatbot.config.LlmRoutingConfig;
+import com.edun7.ragchatbot.model.ConversationHistory;
+import com.edun7.ragchatbot.service.metrics.RagMetrics;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoutingLlmServiceTest {
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void failsOverToTheNextBackend() throws Exception {
+        StubLlmServer broken = server(StubLlmServer.failing(503));
+        StubLlmServer healthy = server(StubLlmServer.answering("from healthy", 0));
+        RoutingLlmService router = router(routingConfig(), broken, healthy);
+
+        assertThat(router.complete("instructions", "question")).isEqualTo("from healthy");
+        assertThat(broken.requests()).isEqualTo(1);
+        assertThat(healthy.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void backendThatNeverSucceededIsNotTriedFirstAgain() throws Exception {
+        StubLlmServer broken = server(StubLlmServer.failing(401));
+        StubLlmServer healthy = server(StubLlmServer.answering("from healthy", 0));
+        LlmRoutingConfig config = routingConfig();
+        // Without a cooldown only the score keeps the broken backend from being tried first
+        config.setFailureCooldown(Duration.ZERO);
+        RoutingLlmService router = router(config, broken, healthy);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(router.complete("instructions", "question")).isEqualTo("from healthy");
+        }
+        assertThat(broken.requests()).isEqualTo(1);
+        assertThat(healthy.requests()).isEqualTo(10);
+    }
+
+    @Test
+    void reportsTheLastErrorWhenEveryBackendFails() throws Exception {
+        RoutingLlmService router = router(routingConfig(),
+                server(StubLlmServer.failing(500)), server(StubLlmServer.failing(400)));
+
+        assertThatThrownBy(() -> router.complete("instructions", "question"))
+                .isInstanceOf(LlmException.class)
+                .hasMessageContaining("returned status");
+    }
+
+    @Test
+    void hedgesSlowCallsWithAnotherBackend() throws Exception {
+        StubLlmServer slow = server(StubLlmServer.answering("from slow", 3000));
+        StubLlmServer fast = server(StubLlmServer.answering("from fast", 0));
+        LlmRoutingConfig config = routingConfig();
+        config.setHedgingEnabled(true);
+        config.setMinHedgeDelay(Duration.ofMillis(100));
+        RoutingLlmService router = router(config, slow, fast);
+
+        long start = System.nanoTime();
+        assertThat(router.complete("instructions", "question")).isEqualTo("from fast");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        assertThat(slow.requests()).isEqualTo(1);
+    }
+
+    @Test
+    void hedgesSlowStreamsAndRelaysOnlyTheWinner() throws Exception {
+        StubLlmServer slow = server(StubLlmServer.answering("from slow", 3000));
+        StubLlmServer fast = server(StubLlmServer.answering("from fast", 0));
+        LlmRoutingConfig config = routingConfig();
+        config.setHedgingEnabled(true);
+        config.setMinHedgeDelay(Duration.ofMillis(100));
+        RoutingLlmService router = router(config, slow, fast);
+
+        StringBuilder tokens = new StringBuilder();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        router.streamResponse(List.of("Some context."), "question", ConversationHistory.empty(),
+                new StreamingResponseHandler<>() {
+                    @Override
+                    public void onNext(String token) {
+                        tokens.append(token);
+                    }
+
+                    @Override
+                    public void onComplete(Response<String> response) {
+                        result.complete(response.content());
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        result.completeExceptionally(error);
+                    }
+                });
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("from fast");
+        assertThat(tokens.toString()).isEqualTo("from fast");
+    }
+
+    @Test
+    void recordsQueueWaitAndUpstreamTimePerBackend() throws Exception {
+        StubLlmServer slow = server(StubLlmServer.answering("answer", 200));
+        RoutingLlmService router = router(routingConfig(), slow);
+
+        router.complete("instructions", "question");
+        router.complete("instructions", "question");
+
+        Timer upstream = meterRegistry.get(RagMetrics.LLM_UPSTREAM).tag("backend", "stub-0").timer();
+        Timer queueWait = meterRegistry.get(RagMetrics.LLM_QUEUE_WAIT).tag("backend", "stub-0").timer();
+        assertThat(upstream.count()).isEqualTo(2);
+        assertThat(upstream.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(400);
+        assertThat(queueWait.count()).isEqualTo(2);
+        assertThat(queueWait.totalTime(TimeUnit.MILLISECONDS)).isLessThan(upstream.totalTime(TimeUnit.MILLISECONDS));
+        assertThat(meterRegistry.get(RagMetrics.LLM_IN_FLIGHT).tag("backend", "stub-0").gauge().value()).isZero();
+        assertThat(meterRegistry.get(RagMetrics.LLM_RETRIES).tag("backend", "stub-0").counter().count()).isZero();
+    }
+
+    private StubLlmServer server(StubLlmServer server) {
+        resources.add(server);
+        return server;
+    }
+
+    private static LlmRoutingConfig routingConfig() {
+        LlmRoutingConfig config = new LlmRoutingConfig();
+        config.setThreads(8);
+        config.setQueueCapacity(8);
+        return config;
+    }
+
+    private RoutingLlmService router(LlmRoutingConfig config, StubLlmServer... servers) {
+        for (int i = 0; i < servers.length; i++) {
+            LlmRoutingConfig.Backend backend = new LlmRoutingConfig.Backend();
+            backend.setName("stub-" + i);
+            backend.setBaseUrl(servers[i].baseUrl());
+            backend.setApiKey("test");
+            backend.setModel("stub-model");
+            config.getBackends().add(backend);
+        }
+        GroqConfig settings = new GroqConfig();
+        // Fail over instead of retrying the same backend
+        settings.setMaxRetries(0);
+        settings.setRequestTimeout(Duration.ofSeconds(10));
+        ContextBuilder contextBuilder = new ContextBuilder(new ContextConfig(), TokenCounter.estimating());
+        RagMetrics metrics = new RagMetrics(ObservationRegistry.NOOP, meterRegistry);
+        RoutingLlmService router = new RoutingLlmService(config, settings, contextBuilder, new ExecutorFactory(false), metrics);
+        resources.add(router::shutdown);
+        return router;
+    }
+}
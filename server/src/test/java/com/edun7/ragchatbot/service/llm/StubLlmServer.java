@@ -0,0 +1,87 @@
+package com.edun7.ragchatbot.service.llm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local OpenAI-compatible chat completions endpoint that answers with a fixed text, or a fixed
+ * error status, after a delay
+ */
+class StubLlmServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final String answer;
+    private final int status;
+    private final long delayMillis;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private StubLlmServer(String answer, int status, long delayMillis) throws IOException {
+        this.answer = answer;
+        this.status = status;
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "stub-llm");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.server.start();
+    }
+
+    static StubLlmServer answering(String answer, long delayMillis) throws IOException {
+        return new StubLlmServer(answer, 200, delayMillis);
+    }
+
+    static StubLlmServer failing(int status) throws IOException {
+        return new StubLlmServer(null, status, 0);
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body;
+        if (status != 200) {
+            body = "{\"error\":{\"message\":\"stub failure\"}}".getBytes(StandardCharsets.UTF_8);
+        } else if (request.contains("\"stream\":true")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            body = ("data: {\"choices\":[{\"delta\":{\"content\":\"" + answer + "\"}}]}\n\n"
+                    + "data: [DONE]\n\n").getBytes(StandardCharsets.UTF_8);
+        } else {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            body = ("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + answer + "\"}}],"
+                    + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":2}}").getBytes(StandardCharsets.UTF_8);
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(status, body.length);
+            out.write(body);
+        } catch (IOException e) {
+            // The client gave up on the request, e.g. a cancelled hedge
+        }
+    }
+}
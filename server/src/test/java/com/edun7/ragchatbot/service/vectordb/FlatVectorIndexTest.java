@@ -0,0 +1,163 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+class FlatVectorIndexTest {
+
+    private static final int DIMENSION = 24;
+    // Crosses the 4096 vector block boundary
+    private static final int COUNT = 5000;
+
+    private final Random random = new Random(11);
+    private final List<float[]> vectors = new ArrayList<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsTheExactNearestNeighborsBestFirst() {
+        FlatVectorIndex index = fill(new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), null, 1, 1));
+
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomUnitVector();
+            List<HnswIndex.Hit> hits = index.search(query, 10, null);
+
+            assertThat(hits).extracting(HnswIndex.Hit::node).containsExactlyElementsOf(exact(query, 10, id -> true));
+            assertThat(hits).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Hit::score).reversed());
+        }
+    }
+
+    @Test
+    void findsVectorsInEveryBlock() {
+        FlatVectorIndex index = fill(new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), null, 1, 1));
+
+        for (int id : new int[]{0, 4095, 4096, COUNT - 1}) {
+            List<HnswIndex.Hit> hits = index.search(vectors.get(id), 1, null);
+            assertThat(hits.get(0).node()).isEqualTo(id);
+            assertThat(hits.get(0).score()).isCloseTo(1f, within(1e-5f));
+        }
+    }
+
+    @Test
+    void parallelScansMatchSerialScans() {
+        FlatVectorIndex serial = fill(new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), null, 1, 1));
+        FlatVectorIndex parallel = new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), executor, 4, 100);
+        vectors.forEach(parallel::add);
+
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomUnitVector();
+            List<HnswIndex.Hit> expected = serial.search(query, 15, null);
+            assertThat(parallel.search(query, 15, null))
+                    .extracting(HnswIndex.Hit::node, HnswIndex.Hit::score)
+                    .containsExactlyElementsOf(expected.stream()
+                            .map(hit -> tuple(hit.node(), hit.score()))
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void onlyReturnsAcceptedVectors() {
+        FlatVectorIndex index = fill(new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), executor, 4, 100));
+        IntPredicate accept = id -> id % 97 == 3;
+        float[] query = randomUnitVector();
+
+        List<HnswIndex.Hit> hits = index.search(query, 8, accept);
+
+        assertThat(hits).extracting(HnswIndex.Hit::node).containsExactlyElementsOf(exact(query, 8, accept));
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        FlatVectorIndex index = fill(new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), null, 1, 1));
+        index.clear();
+
+        assertThat(index.size()).isZero();
+        assertThat(index.search(randomUnitVector(), 5, null)).isEmpty();
+        assertThat(index.add(randomUnitVector())).isZero();
+    }
+
+    @Test
+    void rejectsVectorsOfAnotherDimension() {
+        FlatVectorIndex index = new FlatVectorIndex(DIMENSION, new ScalarVectorKernel(), null, 1, 1);
+
+        assertThatThrownBy(() -> index.add(new float[DIMENSION - 1])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search(new float[DIMENSION + 1], 5, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void availableKernelAgreesWithTheScalarKernel() {
+        VectorKernel kernel = VectorKernel.create();
+        VectorKernel scalar = new ScalarVectorKernel();
+        // An odd dimension leaves a tail after the SIMD lanes
+        int dimension = 37;
+        int count = 50;
+        float[] packed = new float[dimension * count];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (float) random.nextGaussian();
+        }
+        float[] query = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+
+        float[] scores = new float[count];
+        float[] expected = new float[count];
+        kernel.dotAll(query, packed, 0, count, scores);
+        scalar.dotAll(query, packed, 0, count, expected);
+
+        for (int i = 0; i < count; i++) {
+            assertThat(scores[i]).isCloseTo(expected[i], within(1e-3f));
+            assertThat(kernel.dot(query, packed, i * dimension)).isCloseTo(expected[i], within(1e-3f));
+        }
+    }
+
+    private FlatVectorIndex fill(FlatVectorIndex index) {
+        if (vectors.isEmpty()) {
+            for (int i = 0; i < COUNT; i++) {
+                vectors.add(randomUnitVector());
+            }
+        }
+        vectors.forEach(index::add);
+        return index;
+    }
+
+    private List<Integer> exact(float[] query, int k, IntPredicate accept) {
+        return IntStream.range(0, vectors.size()).boxed()
+                .filter(accept::test)
+                .sorted(Comparator.comparingDouble((Integer id) -> dot(query, vectors.get(id))).reversed())
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    private static float dot(float[] a, float[] b) {
+        return new ScalarVectorKernel().dot(a, b, 0);
+    }
+
+    private float[] randomUnitVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorKernel.normalize(vector);
+    }
+}
@@ -0,0 +1,164 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(7);
+    private final ArrayStorage storage = new ArrayStorage();
+
+    @Test
+    void findsMostTrueNearestNeighbors() {
+        HnswIndex index = index(2000);
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector();
+            Set<Integer> expected = exact(query, 10, id -> true);
+            found += (int) index.search(query, 10, 64).stream().filter(hit -> expected.contains(hit.node())).count();
+        }
+        assertThat(found / (double) (queries * 10)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void returnsHitsBestFirstWithTheirScores() {
+        HnswIndex index = index(500);
+        float[] query = storage.vector(123);
+
+        List<HnswIndex.Hit> hits = index.search(query, 5, 32);
+
+        assertThat(hits).hasSize(5);
+        assertThat(hits.get(0).node()).isEqualTo(123);
+        assertThat(hits.get(0).score()).isCloseTo(1f, within(1e-5f));
+        assertThat(hits).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Hit::score).reversed());
+        for (HnswIndex.Hit hit : hits) {
+            assertThat(hit.score()).isEqualTo(storage.dot(query, hit.node()));
+        }
+    }
+
+    @Test
+    void neverReturnsDeletedNodes() {
+        HnswIndex index = index(500);
+        float[] query = storage.vector(10);
+        for (int id = 0; id < 500; id += 2) {
+            index.markDeleted(id);
+        }
+
+        List<HnswIndex.Hit> hits = index.search(query, 20, 64);
+
+        assertThat(hits).hasSize(20).allSatisfy(hit -> assertThat(hit.node() % 2).isOne());
+        assertThat(index.liveCount()).isEqualTo(250);
+        assertThat(index.size()).isEqualTo(500);
+    }
+
+    @Test
+    void appliesTheFilterDuringTheSearch() {
+        HnswIndex index = index(1000);
+        // A selective filter: one node in fifty
+        IntPredicate filter = id -> id % 50 == 7;
+        float[] query = randomUnitVector();
+
+        List<HnswIndex.Hit> hits = index.search(query, 5, 64, filter);
+
+        assertThat(hits).extracting(HnswIndex.Hit::node)
+                .containsExactlyInAnyOrderElementsOf(exact(query, 5, filter::test));
+    }
+
+    @Test
+    void clearEmptiesTheGraph() {
+        HnswIndex index = index(100);
+        index.clear();
+
+        assertThat(index.size()).isZero();
+        assertThat(index.search(randomUnitVector(), 5, 32)).isEmpty();
+    }
+
+    @Test
+    void rejectsQueriesOfAnotherDimension() {
+        HnswIndex index = index(10);
+        assertThatThrownBy(() -> index.search(new float[DIMENSION + 1], 5, 32))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private HnswIndex index(int count) {
+        HnswIndex index = new HnswIndex(storage, 16, 100, 16);
+        for (int id = 0; id < count; id++) {
+            storage.add(randomUnitVector());
+            index.add(id);
+        }
+        return index;
+    }
+
+    private Set<Integer> exact(float[] query, int k, Predicate<Integer> accept) {
+        return IntStream.range(0, storage.size()).boxed()
+                .filter(accept)
+                .sorted(Comparator.comparingDouble((Integer id) -> storage.dot(query, id)).reversed())
+                .limit(k)
+                .collect(Collectors.toSet());
+    }
+
+    private float[] randomUnitVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorKernel.normalize(vector);
+    }
+
+    /**
+     * Vectors on the heap, with record ids in insertion order
+     */
+    private static final class ArrayStorage implements VectorStorage {
+        private final List<float[]> vectors = new ArrayList<>();
+
+        void add(float[] vector) {
+            vectors.add(vector);
+        }
+
+        int size() {
+            return vectors.size();
+        }
+
+        @Override
+        public int dimension() {
+            return DIMENSION;
+        }
+
+        @Override
+        public float[] vector(int id) {
+            return vectors.get(id).clone();
+        }
+
+        @Override
+        public float dot(float[] query, int id) {
+            float[] vector = vectors.get(id);
+            float sum = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                sum += query[i] * vector[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public float dot(int a, int b) {
+            return dot(vectors.get(a), b);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MappedSegmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackAppendedRecords() throws IOException {
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 3)) {
+            assertThat(store.append(new float[]{1, 0, 0}, segment("first", "doc-1"))).isZero();
+            assertThat(store.append(new float[]{0, 0.6f, 0.8f}, segment("second", "doc-2"))).isEqualTo(1);
+
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.vector(1)).containsExactly(0, 0.6f, 0.8f);
+            assertThat(store.segment(0).text()).isEqualTo("first");
+            assertThat(store.segment(1).metadata(SegmentMetadata.DOCUMENT_ID)).isEqualTo("doc-2");
+            assertThat(store.dot(new float[]{0, 1, 1}, 1)).isCloseTo(1.4f, within(1e-6f));
+            assertThat(store.dot(0, 1)).isZero();
+        }
+    }
+
+    @Test
+    void keepsRecordsAndDeletionsAcrossReopening() throws IOException {
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 2)) {
+            for (int i = 0; i < 100; i++) {
+                store.append(new float[]{i, -i}, segment("segment " + i, "doc-" + i % 3));
+            }
+            store.markDeleted(42);
+            store.flush();
+        }
+
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 2)) {
+            assertThat(store.size()).isEqualTo(100);
+            assertThat(store.isDeleted(42)).isTrue();
+            assertThat(store.isDeleted(41)).isFalse();
+            assertThat(store.vector(99)).containsExactly(99, -99);
+            assertThat(store.segment(57).text()).isEqualTo("segment 57");
+            // Appends continue after the stored records
+            assertThat(store.append(new float[]{1, 1}, segment("next", "doc-0"))).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void storesSegmentsAcrossChunkBoundaries() throws IOException {
+        // 700 records of 100 KB cross the first 64 MB chunk of segments.dat
+        String text = "x".repeat(100_000);
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 2)) {
+            for (int i = 0; i < 700; i++) {
+                store.append(new float[]{i, 0}, segment(i + text, "doc"));
+            }
+            assertThat(store.segment(699).text()).isEqualTo(699 + text);
+            assertThat(store.segment(671).text()).startsWith("671x");
+        }
+    }
+
+    @Test
+    void clearStartsOverAtRecordZero() throws IOException {
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 2)) {
+            store.append(new float[]{1, 0}, segment("old", "doc-1"));
+            store.clear();
+            assertThat(store.size()).isZero();
+            assertThat(store.append(new float[]{0, 1}, segment("new", "doc-2"))).isZero();
+            assertThat(store.segment(0).text()).isEqualTo("new");
+        }
+    }
+
+    @Test
+    void rejectsVectorsOfAnotherDimension() throws IOException {
+        try (MappedSegmentStore store = new MappedSegmentStore(directory, 2)) {
+            assertThatThrownBy(() -> store.append(new float[]{1, 2, 3}, segment("text", "doc")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> new MappedSegmentStore(directory, 3))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("dimension 2");
+    }
+
+    private static TextSegment segment(String text, String documentId) {
+        return TextSegment.from(text, Metadata.from(SegmentMetadata.DOCUMENT_ID, documentId));
+    }
+}
@@ -0,0 +1,67 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RankFusionTest {
+
+    @Test
+    void ranksResultsFoundByBothListsFirst() {
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.reciprocalRankFusion(
+                List.of(ranking("a", "b", "c"), ranking("c", "d", "a")), new double[]{1, 1}, 60, 10);
+
+        assertThat(ids(fused)).containsExactly("a", "c", "b", "d");
+        assertThat(fused.get(0).score()).isCloseTo(1.0 / 61 + 1.0 / 63, within(1e-12));
+        assertThat(fused.get(2).score()).isCloseTo(1.0 / 62, within(1e-12));
+    }
+
+    @Test
+    void weightsFavorOneList() {
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.reciprocalRankFusion(
+                List.of(ranking("a", "b"), ranking("c", "d")), new double[]{1, 3}, 60, 10);
+
+        assertThat(ids(fused)).containsExactly("c", "d", "a", "b");
+    }
+
+    @Test
+    void keepsOneResultPerEmbeddingId() {
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.reciprocalRankFusion(
+                List.of(ranking("a", "b"), ranking("b", "a"), ranking("a")), new double[]{1, 1, 1}, 60, 10);
+
+        assertThat(ids(fused)).containsExactly("a", "b");
+        assertThat(fused.get(0).embedded().text()).isEqualTo("text of a");
+    }
+
+    @Test
+    void limitsTheFusedList() {
+        List<EmbeddingMatch<TextSegment>> fused = RankFusion.reciprocalRankFusion(
+                List.of(ranking("a", "b", "c"), ranking("d", "e")), new double[]{1, 1}, 60, 2);
+
+        assertThat(ids(fused)).hasSize(2).containsExactlyInAnyOrder("a", "d");
+    }
+
+    @Test
+    void handlesEmptyRankings() {
+        assertThat(RankFusion.reciprocalRankFusion(List.of(ranking(), ranking()), new double[]{1, 1}, 60, 5))
+                .isEmpty();
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> ranking(String... ids) {
+        // Scores of each list are on their own scale and must not affect the fusion
+        return Arrays.stream(ids)
+                .map(id -> new EmbeddingMatch<>(100.0 - id.charAt(0), id, null, TextSegment.from("text of " + id)))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> ids(List<EmbeddingMatch<TextSegment>> matches) {
+        return matches.stream().map(EmbeddingMatch::embeddingId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,102 @@
+package com.edun7.ragchatbot.service.vectordb;
+
+import com.edun7.ragchatbot.service.document.SegmentMetadata;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentKeysTest {
+
+    @TempDir
+    Path directory;
+
+    private MappedSegmentStore store;
+    private SegmentKeys keys;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new MappedSegmentStore(directory, 2);
+        keys = new SegmentKeys(store);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void readsTheKeysOfAppendedRecords() {
+        append("doc-1", "hash-a", 1);
+        append("doc-1", "hash-b", 2);
+        append("doc-2", "hash-c", 1);
+        keys.catchUp();
+
+        assertThat(keys.size()).isEqualTo(3);
+        assertThat(keys.documentId(0)).isEqualTo("doc-1");
+        assertThat(keys.segmentHash(2)).isEqualTo("hash-c");
+        // Segments of one document share the id instance
+        assertThat(keys.documentId(1)).isSameAs(keys.documentId(0));
+    }
+
+    @Test
+    void readsRecordsNotCaughtUpFromTheStore() {
+        append("doc-1", "hash-a", 1);
+        keys.catchUp();
+        append("doc-2", "hash-b", 1);
+
+        assertThat(keys.size()).isEqualTo(1);
+        assertThat(keys.documentId(1)).isEqualTo("doc-2");
+        assertThat(keys.segmentHash(1)).isEqualTo("hash-b");
+    }
+
+    @Test
+    void matchesFiltersOnHeldAndOtherKeys() {
+        append("doc-1", "hash-a", 1);
+        append("doc-1", "hash-b", 2);
+        append("doc-2", "hash-c", 2);
+        keys.catchUp();
+
+        assertThat(matching(keys.matcher(MetadataFilter.of(SegmentMetadata.DOCUMENT_ID, "doc-1")))).containsExactly(0, 1);
+        assertThat(matching(keys.matcher(MetadataFilter.from(Map.of(
+                SegmentMetadata.DOCUMENT_ID, List.of("doc-1"),
+                SegmentMetadata.SEGMENT_HASH, List.of("hash-b", "hash-c")))))).containsExactly(1);
+        assertThat(matching(keys.matcher(MetadataFilter.of(SegmentMetadata.PAGE, "2")))).containsExactly(1, 2);
+    }
+
+    @Test
+    void clearDropsEveryKey() {
+        append("doc-1", "hash-a", 1);
+        keys.catchUp();
+        store.clear();
+        keys.clear();
+        append("doc-2", "hash-b", 1);
+        keys.catchUp();
+
+        assertThat(keys.size()).isEqualTo(1);
+        assertThat(keys.documentId(0)).isEqualTo("doc-2");
+    }
+
+    private void append(String documentId, String segmentHash, int page) {
+        Metadata metadata = new Metadata();
+        metadata.add(SegmentMetadata.DOCUMENT_ID, documentId);
+        metadata.add(SegmentMetadata.SEGMENT_HASH, segmentHash);
+        metadata.add(SegmentMetadata.PAGE, page);
+        store.append(new float[]{1, 0}, TextSegment.from("text of " + segmentHash, metadata));
+    }
+
+    private int[] matching(IntPredicate matcher) {
+        return IntStream.range(0, store.size()).filter(matcher).toArray();
+    }
+}